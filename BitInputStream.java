@@ -0,0 +1,122 @@
+//===========================================================================================================================
+//	Program : Class that reads gamma and delta codes from a byte buffer
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.nio.ByteBuffer;
+
+public class BitInputStream {
+	private ByteBuffer buffer;
+	private int start;
+	private long bitPos;
+
+	public BitInputStream(ByteBuffer buffer) {
+		this(buffer, buffer.position());
+	}
+
+	public BitInputStream(ByteBuffer buffer, int byteOffset) {
+		reset(buffer, byteOffset);
+	}
+
+	//points the stream at a new posting list without allocating a new reader
+	public void reset(ByteBuffer buffer, int byteOffset) {
+		this.buffer = buffer;
+		this.start = byteOffset;
+		this.bitPos = 0;
+	}
+
+	public long bitPosition() {
+		return bitPos;
+	}
+
+	public void seek(long bitPosition) {
+		bitPos = bitPosition;
+	}
+
+	public int readBit() {
+		int b = buffer.get(start + (int) (bitPos >>> 3));
+		int bit = (b >>> (7 - (int) (bitPos & 7))) & 1;
+		bitPos++;
+		return bit;
+	}
+
+	//reads n bits, most significant bit first
+	public long readBits(int n) {
+		long result = 0;
+		while (n > 0) {
+			int avail = 8 - (int) (bitPos & 7);
+			int take = Math.min(avail, n);
+			int b = buffer.get(start + (int) (bitPos >>> 3)) & 0xFF;
+			result = (result << take) | ((b >>> (avail - take)) & ((1 << take) - 1));
+			bitPos += take;
+			n -= take;
+		}
+		return result;
+	}
+
+	//reads 8 bits, one buffer read when the stream is on a byte boundary
+	public int readByte() {
+		if ((bitPos & 7) != 0)
+			return (int) readBits(8);
+		int b = buffer.get(start + (int) (bitPos >>> 3)) & 0xFF;
+		bitPos += 8;
+		return b;
+	}
+
+	//reads 64 bits, one buffer read when the stream is on a byte boundary
+	public long readLong() {
+		if ((bitPos & 7) != 0)
+			return (readBits(32) << 32) | readBits(32);
+		long word = buffer.getLong(start + (int) (bitPos >>> 3));
+		bitPos += 64;
+		return word;
+	}
+
+	//reads count 32 bit words, one buffer read each when the stream is on a byte boundary
+	public void readInts(int[] words, int count) {
+		if ((bitPos & 7) != 0) {
+			for (int i = 0; i < count; i++)
+				words[i] = (int) readBits(32);
+			return;
+		}
+		int offset = start + (int) (bitPos >>> 3);
+		for (int i = 0; i < count; i++)
+			words[i] = buffer.getInt(offset + 4 * i);
+		bitPos += 32L * count;
+	}
+
+	//counts 1-bits up to and including the terminating 0
+	public int readUnary() {
+		int count = 0;
+		while (true) {
+			int bitInByte = (int) (bitPos & 7);
+			int valid = 8 - bitInByte;
+			int shifted = (buffer.get(start + (int) (bitPos >>> 3)) << bitInByte) & 0xFF;
+			int ones = Integer.numberOfLeadingZeros(~(shifted << 24));
+			if (ones >= valid) {
+				count += valid;
+				bitPos += valid;
+			} else {
+				count += ones;
+				bitPos += ones + 1;
+				return count;
+			}
+		}
+	}
+
+	public int readGamma() {
+		int offsetLen = readUnary();
+		return (1 << offsetLen) | (int) readBits(offsetLen);
+	}
+
+	public int readDelta() {
+		int binLen = readGamma();
+		return (1 << (binLen - 1)) | (int) readBits(binLen - 1);
+	}
+
+	//skips to the next byte boundary
+	public void alignToByte() {
+		bitPos = (bitPos + 7) & ~7L;
+	}
+}
@@ -0,0 +1,179 @@
+//===========================================================================================================================
+//	Program : Class that writes gamma and delta codes into a reusable bit buffer
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Random;
+
+public class BitOutputStream {
+	private long[] words;
+	private long bitCount;
+	private byte[] bytes;
+
+	public BitOutputStream() {
+		this(64);
+	}
+
+	public BitOutputStream(int initialWords) {
+		words = new long[Math.max(1, initialWords)];
+		bytes = new byte[words.length * 8];
+	}
+
+	//clears the bits written so far, the buffers are kept for the next posting list
+	public void reset() {
+		Arrays.fill(words, 0, (int) ((bitCount + 63) >>> 6), 0L);
+		bitCount = 0;
+	}
+
+	public long bitLength() {
+		return bitCount;
+	}
+
+	public int byteLength() {
+		return (int) ((bitCount + 7) >>> 3);
+	}
+
+	//writes the low n bits of value, most significant bit first
+	public void writeBits(long value, int n) {
+		if (n == 0)
+			return;
+		ensureCapacity(bitCount + n);
+		if (n < 64)
+			value &= (1L << n) - 1;
+		int index = (int) (bitCount >>> 6);
+		int free = 64 - (int) (bitCount & 63);
+		if (n <= free) {
+			words[index] |= value << (free - n);
+		} else {
+			words[index] |= value >>> (n - free);
+			words[index + 1] |= value << (64 - (n - free));
+		}
+		bitCount += n;
+	}
+
+	//appends the bits of another stream, a word at a time
+	public void append(BitOutputStream other) {
+		long remaining = other.bitCount;
+		for (int i = 0; remaining > 0; i++) {
+			int n = (int) Math.min(64, remaining);
+			writeBits(other.words[i] >>> (64 - n), n);
+			remaining -= n;
+		}
+	}
+
+	//writes the low 8 bits, byte codes call it on a byte boundary
+	public void writeByte(int value) {
+		writeBits(value, 8);
+	}
+
+	public void writeBit(boolean bit) {
+		writeBits(bit ? 1 : 0, 1);
+	}
+
+	//gamma code : unary length of the offset, a 0 and then the offset without its leading 1-bit
+	public void writeGamma(int number) {
+		if (number < 1)
+			throw new IllegalArgumentException("Gamma code needs a positive number :: " + number);
+		int offsetLen = 31 - Integer.numberOfLeadingZeros(number);
+		writeBits(((1L << offsetLen) - 1) << 1, offsetLen + 1);
+		writeBits(number, offsetLen);
+	}
+
+	//delta code : gamma code of the binary length followed by the offset without its leading 1-bit
+	public void writeDelta(int number) {
+		if (number < 1)
+			throw new IllegalArgumentException("Delta code needs a positive number :: " + number);
+		int binLen = 32 - Integer.numberOfLeadingZeros(number);
+		writeGamma(binLen);
+		writeBits(number, binLen - 1);
+	}
+
+	//pads with 0 bits up to the next byte boundary
+	public void alignToByte() {
+		int pad = (int) (-bitCount & 7);
+		if (pad > 0)
+			writeBits(0, pad);
+	}
+
+	//copies the written bits into the reusable byte buffer and returns it, valid up to byteLength()
+	public byte[] toBytes() {
+		int len = byteLength();
+		if (bytes.length < len)
+			bytes = new byte[words.length * 8];
+		for (int i = 0; i < len; i++) {
+			bytes[i] = (byte) (words[i >>> 3] >>> (56 - ((i & 7) << 3)));
+		}
+		return bytes;
+	}
+
+	//writes the bit stream as bytes, the last byte is padded with 0 bits
+	public void writeTo(DataOutput out) throws IOException {
+		out.write(toBytes(), 0, byteLength());
+	}
+
+	private void ensureCapacity(long bits) {
+		int needed = (int) ((bits + 63) >>> 6) + 1;
+		if (needed > words.length)
+			words = Arrays.copyOf(words, Math.max(needed, words.length * 2));
+	}
+
+	//the written bits as a string of 0s and 1s, to compare with the String encoders of Compression
+	private String bitString(long from) {
+		StringBuilder result = new StringBuilder((int) (bitCount - from));
+		for (long i = from; i < bitCount; i++)
+			result.append((words[(int) (i >>> 6)] >>> (63 - (i & 63))) & 1);
+		return result.toString();
+	}
+
+	//Golden check : random values are written as gamma and delta codes, compared bit for bit with
+	//Compression.gammaCompression and deltaCompression and read back through BitInputStream
+	//Usage: BitOutputStream [number of values] [seed]
+	public static void main(String[] args) {
+		int count = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		Random random = new Random(args.length > 1 ? Long.parseLong(args[1]) : 42);
+		int[] values = new int[count];
+		for (int i = 0; i < count; i++) {
+			//mostly small numbers like docId gaps and tfs, with every binary length up to Integer.MAX_VALUE
+			int bits = random.nextInt(4) == 0 ? 1 + random.nextInt(31) : 1 + random.nextInt(10);
+			values[i] = Math.max(1, random.nextInt(Integer.MAX_VALUE) >>> (31 - bits));
+		}
+		values[0] = 1;
+		values[count - 1] = Integer.MAX_VALUE;
+		BitOutputStream out = new BitOutputStream();
+		int mismatches = 0;
+		for (int i = 0; i < count; i++) {
+			long start = out.bitLength();
+			out.writeGamma(values[i]);
+			String gamma = out.bitString(start);
+			start = out.bitLength();
+			out.writeDelta(values[i]);
+			String delta = out.bitString(start);
+			if (!gamma.equals(Compression.gammaCompression(values[i])) || !delta.equals(Compression.deltaCompression(values[i]))) {
+				mismatches++;
+				System.out.println("Mismatch in the codes of " + values[i] + " :: " + gamma + " " + delta);
+			}
+		}
+		//the whole stream read back, the padding of the last byte is not a value
+		BitInputStream in = new BitInputStream(ByteBuffer.wrap(Arrays.copyOf(out.toBytes(), out.byteLength())));
+		for (int i = 0; i < count; i++) {
+			int gamma = in.readGamma();
+			int delta = in.readDelta();
+			if (gamma != values[i] || delta != values[i]) {
+				mismatches++;
+				System.out.println("Mismatch in the decoding of " + values[i] + " :: " + gamma + " " + delta);
+				//the rest of the stream is out of step
+				break;
+			}
+		}
+		if (mismatches == 0 && in.bitPosition() != out.bitLength()) {
+			mismatches++;
+			System.out.println("Mismatch in the length :: " + in.bitPosition() + " bits read, " + out.bitLength() + " written");
+		}
+		System.out.println("Values :: " + count + ", bits :: " + out.bitLength() + ", mismatches :: " + mismatches);
+	}
+}
@@ -0,0 +1,154 @@
+//===========================================================================================================================
+//	Program : Class that packs blocks of numbers with the same number of bits each
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.util.Arrays;
+import java.util.Random;
+
+public class BitPacking {
+	//full blocks get the lane layout, shorter ones are packed one number after the other
+	public static final int BLOCK_SIZE = 128;
+	//numbers i, i + LANES, i + 2 * LANES, ... of a block are packed into the same lane of 32 bit words
+	public static final int LANES = 4;
+	//Vector API kernels when VectorBitPacking is compiled and jdk.incubator.vector is added, scalar ones otherwise
+	private static final BitPacking KERNEL = loadKernel();
+	//the vector prefix sum is only used when asked for with -Dbitpacking.vectorPrefixSum=true
+	public static final boolean VECTOR_PREFIX_SUM = Boolean.getBoolean("bitpacking.vectorPrefixSum");
+	private static final ThreadLocal<int[]> blockWords = ThreadLocal.withInitial(() -> new int[BLOCK_SIZE]);
+
+	private static BitPacking loadKernel() {
+		try {
+			return (BitPacking) Class.forName("VectorBitPacking").getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException | LinkageError e) {
+			return new BitPacking();
+		}
+	}
+
+	public static BitPacking getKernel() {
+		return KERNEL;
+	}
+
+	//writes the low width bits of values start to start + n
+	public static void pack(int[] values, int start, int n, int width, BitOutputStream out) {
+		if (n == BLOCK_SIZE) {
+			int[] words = blockWords.get();
+			packBlock(values, start, width, words);
+			for (int k = 0; k < LANES * width; k++)
+				out.writeBits(words[k], 32);
+			return;
+		}
+		//most significant bit first
+		for (int i = start; i < start + n; i++)
+			out.writeBits(values[i], width);
+	}
+
+	public static void unpack(BitInputStream in, int[] values, int start, int n, int width) {
+		if (width == 0) {
+			Arrays.fill(values, start, start + n, 0);
+			return;
+		}
+		if (n == BLOCK_SIZE) {
+			int[] words = blockWords.get();
+			in.readInts(words, LANES * width);
+			KERNEL.unpackBlock(words, width, values, start);
+			return;
+		}
+		for (int i = start; i < start + n; i++)
+			values[i] = (int) in.readBits(width);
+	}
+
+	//Block layout (SIMD-BP128) : number i is in lane i % LANES, at bit (i / LANES) * width of the lane,
+	//low bits first, and word k of lane l is words[k * LANES + l], so LANES numbers in a row unpack with the same shifts
+	public static void packBlock(int[] values, int start, int width, int[] words) {
+		Arrays.fill(words, 0, LANES * width, 0);
+		if (width == 0)
+			return;
+		int mask = width == 32 ? -1 : (1 << width) - 1;
+		for (int i = 0; i < BLOCK_SIZE; i++) {
+			int lane = i % LANES, bit = (i / LANES) * width;
+			int k = bit >>> 5, shift = bit & 31, value = values[start + i] & mask;
+			words[k * LANES + lane] |= value << shift;
+			if (shift + width > 32)
+				words[(k + 1) * LANES + lane] |= value >>> (32 - shift);
+		}
+	}
+
+	//unpacks the BLOCK_SIZE numbers of a block packed with packBlock
+	public void unpackBlock(int[] words, int width, int[] values, int start) {
+		int mask = width == 32 ? -1 : (1 << width) - 1;
+		for (int row = 0; row < BLOCK_SIZE / LANES; row++) {
+			int bit = row * width, k = (bit >>> 5) * LANES, shift = bit & 31;
+			boolean spans = shift + width > 32;
+			for (int lane = 0; lane < LANES; lane++) {
+				int value = words[k + lane] >>> shift;
+				if (spans)
+					value |= words[k + LANES + lane] << (32 - shift);
+				values[start + row * LANES + lane] = value & mask;
+			}
+		}
+	}
+
+	//turns n gaps into the numbers they are gaps of, the first one is a gap from base
+	public static void prefixSum(int[] values, int start, int n, int base) {
+		KERNEL.runningSum(values, start, n, base);
+	}
+
+	public void runningSum(int[] values, int start, int n, int base) {
+		int sum = base;
+		for (int i = start; i < start + n; i++)
+			values[i] = sum += values[i];
+	}
+
+	public String getName() {
+		return "scalar";
+	}
+
+	//Unpack and prefix sum speed of the scalar and the loaded kernels in numbers per ns
+	//Usage: java --add-modules jdk.incubator.vector [-Dbitpacking.vectorPrefixSum=true] BitPacking
+	public static void main(String[] args) {
+		Random random = new Random(42);
+		int blocks = 4096;
+		BitPacking[] kernels = KERNEL.getClass() == BitPacking.class ? new BitPacking[] {KERNEL} : new BitPacking[] {new BitPacking(), KERNEL};
+		int[] values = new int[blocks * BLOCK_SIZE], decoded = new int[blocks * BLOCK_SIZE];
+		int[][] words = new int[blocks][LANES * 32];
+		System.out.println("Kernel :: " + KERNEL.getName());
+		System.out.println("Width\t" + (kernels.length > 1 ? "Scalar ints/ns\tVector ints/ns" : "Scalar ints/ns"));
+		for (int width : new int[] {1, 2, 3, 4, 5, 6, 7, 8, 10, 12, 16, 20, 24, 32}) {
+			for (int i = 0; i < values.length; i++)
+				values[i] = width == 32 ? random.nextInt() : random.nextInt(1 << width);
+			for (int b = 0; b < blocks; b++)
+				packBlock(values, b * BLOCK_SIZE, width, words[b]);
+			StringBuilder line = new StringBuilder().append(width);
+			for (BitPacking kernel : kernels) {
+				long best = Long.MAX_VALUE;
+				for (int round = 0; round < 50; round++) {
+					long t0 = System.nanoTime();
+					for (int b = 0; b < blocks; b++)
+						kernel.unpackBlock(words[b], width, decoded, b * BLOCK_SIZE);
+					best = Math.min(best, System.nanoTime() - t0);
+				}
+				if (!Arrays.equals(values, decoded))
+					throw new IllegalStateException(kernel.getName() + " unpacked width " + width + " wrong");
+				line.append("\t").append(String.format("%.2f", (double) values.length / best)).append("\t");
+			}
+			System.out.println(line);
+		}
+		StringBuilder line = new StringBuilder("Prefix sum");
+		for (BitPacking kernel : kernels) {
+			long best = Long.MAX_VALUE;
+			for (int round = 0; round < 50; round++) {
+				Arrays.fill(decoded, 1);
+				long t0 = System.nanoTime();
+				for (int b = 0; b < blocks; b++)
+					kernel.runningSum(decoded, b * BLOCK_SIZE, BLOCK_SIZE, b);
+				best = Math.min(best, System.nanoTime() - t0);
+			}
+			if (decoded[decoded.length - 1] != blocks - 1 + BLOCK_SIZE)
+				throw new IllegalStateException(kernel.getName() + " prefix sum wrong");
+			line.append("\t").append(String.format("%.2f", (double) blocks * BLOCK_SIZE / best));
+		}
+		System.out.println(line);
+	}
+}
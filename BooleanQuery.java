@@ -0,0 +1,436 @@
+//===========================================================================================================================
+//	Program : Class that answers AND, OR and NOT queries on the compressed posting lists of an index
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.IOException;
+import java.util.*;
+
+public class BooleanQuery {
+	private IndexReader reader;
+	private List<String> tokens = new ArrayList<>();
+	private int pos;
+
+	private BooleanQuery(IndexReader reader, String query) {
+		this.reader = reader;
+		StringTokenizer tokenizer = new StringTokenizer(query, " \t()\"", true);
+		while (tokenizer.hasMoreTokens()) {
+			String token = tokenizer.nextToken();
+			if (!token.isBlank())
+				tokens.add(token);
+		}
+	}
+
+	//Query like flow AND (pressur OR boundari) AND NOT shock, adjacent terms are ANDed
+	//"boundari layer" is a phrase and "shock wave"~3 finds wave at most 3 positions after shock, both need an index with positions
+	//terms are looked up as they are given, so they have to be lemmas or stems of the index version
+	public static DocIdIterator parse(IndexReader reader, String query) {
+		BooleanQuery parser = new BooleanQuery(reader, query);
+		DocIdIterator iterator = parser.parseOr();
+		if (parser.pos < parser.tokens.size())
+			throw new IllegalArgumentException("unexpected " + parser.tokens.get(parser.pos) + " in " + query);
+		return iterator;
+	}
+
+	//docIds matching the query in increasing order
+	public static int[] search(IndexReader reader, String query) {
+		DocIdIterator iterator = parse(reader, query);
+		int[] docIds = new int[Math.min(iterator.cost(), 1024)];
+		int count = 0;
+		for (int docId = iterator.nextDoc(); docId != DocIdIterator.NO_MORE_DOCS; docId = iterator.nextDoc()) {
+			if (count == docIds.length)
+				docIds = Arrays.copyOf(docIds, count * 2);
+			docIds[count++] = docId;
+		}
+		return Arrays.copyOf(docIds, count);
+	}
+
+	private DocIdIterator parseOr() {
+		List<DocIdIterator> clauses = new ArrayList<>();
+		clauses.add(parseAnd());
+		while (accept("OR"))
+			clauses.add(parseAnd());
+		return clauses.size() == 1 ? clauses.get(0) : new OrIterator(clauses);
+	}
+
+	private DocIdIterator parseAnd() {
+		List<DocIdIterator> required = new ArrayList<>();
+		List<DocIdIterator> excluded = new ArrayList<>();
+		do {
+			if (accept("NOT"))
+				excluded.add(parseClause());
+			else
+				required.add(parseClause());
+		} while (accept("AND") || startsClause());
+		if (required.isEmpty())
+			required.add(new AllDocsIterator(reader.getDocumentStatistics()));
+		DocIdIterator include = required.size() == 1 ? required.get(0) : new AndIterator(required);
+		return excluded.isEmpty() ? include : new AndNotIterator(include, excluded);
+	}
+
+	private DocIdIterator parseClause() {
+		if (pos == tokens.size())
+			throw new IllegalArgumentException("query ends where a term is expected");
+		//an operator where a term belongs, like AND x or ( OR x ), is an error and not a term to look up
+		String next = tokens.get(pos);
+		if (next.equals("AND") || next.equals("OR") || next.equals(")") || next.startsWith("~"))
+			throw new IllegalArgumentException("expected a term, found " + next);
+		if (accept("(")) {
+			DocIdIterator iterator = parseOr();
+			if (!accept(")"))
+				throw new IllegalArgumentException("missing )");
+			return iterator;
+		}
+		if (accept("NOT"))
+			return new AndNotIterator(new AllDocsIterator(reader.getDocumentStatistics()), Collections.singletonList(parseClause()));
+		if (accept("\""))
+			return parsePhrase();
+		String term = tokens.get(pos++).toLowerCase();
+		int termIndex = reader.lookup(term);
+		return termIndex < 0 ? new EmptyIterator() : reader.openPostings(termIndex);
+	}
+
+	//terms up to the closing quote and the ~distance after it, 1 when there is none
+	private DocIdIterator parsePhrase() {
+		if (!reader.hasPositions())
+			throw new IllegalArgumentException("phrase queries need an index built with -positions");
+		List<PostingsCursor> cursors = new ArrayList<>();
+		boolean missing = false;
+		while (!accept("\"")) {
+			if (pos == tokens.size())
+				throw new IllegalArgumentException("missing closing quote");
+			int termIndex = reader.lookup(tokens.get(pos++).toLowerCase());
+			if (termIndex < 0)
+				missing = true;
+			else
+				cursors.add(reader.openPostings(termIndex));
+		}
+		int distance = 1;
+		if (pos < tokens.size() && tokens.get(pos).startsWith("~")) {
+			distance = Integer.parseInt(tokens.get(pos++).substring(1));
+			if (distance < 1)
+				throw new IllegalArgumentException("distance has to be at least 1");
+		}
+		if (missing || cursors.isEmpty())
+			return new EmptyIterator();
+		return cursors.size() == 1 ? cursors.get(0) : new PhraseIterator(cursors, distance);
+	}
+
+	private boolean startsClause() {
+		if (pos == tokens.size())
+			return false;
+		String token = tokens.get(pos);
+		return !token.equals("OR") && !token.equals(")") && !token.equals("AND") && !token.startsWith("~");
+	}
+
+	private boolean accept(String token) {
+		if (pos < tokens.size() && tokens.get(pos).equals(token)) {
+			pos++;
+			return true;
+		}
+		return false;
+	}
+
+	//Intersection led by the shortest list, the others are advanced to its docIds through their skip pointers
+	private static class AndIterator implements DocIdIterator {
+		private DocIdIterator[] lists;
+		private int docId = -1;
+
+		AndIterator(List<DocIdIterator> clauses) {
+			lists = clauses.toArray(new DocIdIterator[0]);
+			Arrays.sort(lists, new Comparator<DocIdIterator>() {
+				@Override
+				public int compare(DocIdIterator o1, DocIdIterator o2) {
+					return Integer.compare(o1.cost(), o2.cost());
+				}
+			});
+		}
+
+		@Override
+		public int docId() {
+			return docId;
+		}
+
+		@Override
+		public int cost() {
+			return lists[0].cost();
+		}
+
+		@Override
+		public int nextDoc() {
+			return docId = align(lists[0].nextDoc());
+		}
+
+		@Override
+		public int advance(int target) {
+			if (target <= docId)
+				return docId;
+			return docId = align(lists[0].advance(target));
+		}
+
+		//moves every list to the candidate, a list that goes past it gives the next candidate
+		private int align(int candidate) {
+			int i = 1;
+			while (candidate != NO_MORE_DOCS && i < lists.length) {
+				int next = lists[i].advance(candidate);
+				if (next == candidate) {
+					i++;
+				} else {
+					candidate = lists[0].advance(next);
+					i = 1;
+				}
+			}
+			return candidate;
+		}
+	}
+
+	//Documents where the terms come in order, each at most distance positions after the one before, distance 1 is a phrase
+	//the docIds are intersected first, positions are only decoded for the documents that have every term
+	private static class PhraseIterator implements DocIdIterator {
+		private PostingsCursor[] cursors;
+		private AndIterator documents;
+		private int distance;
+		private int[][] positions;
+		//positions of the current term that the terms so far can end at
+		private int[] reached, next;
+
+		PhraseIterator(List<PostingsCursor> cursors, int distance) {
+			this.cursors = cursors.toArray(new PostingsCursor[0]);
+			this.distance = distance;
+			documents = new AndIterator(new ArrayList<DocIdIterator>(cursors));
+			positions = new int[this.cursors.length][16];
+			reached = new int[16];
+			next = new int[16];
+		}
+
+		@Override
+		public int docId() {
+			return documents.docId();
+		}
+
+		@Override
+		public int cost() {
+			return documents.cost();
+		}
+
+		@Override
+		public int nextDoc() {
+			return verify(documents.nextDoc());
+		}
+
+		@Override
+		public int advance(int target) {
+			if (target <= documents.docId())
+				return documents.docId();
+			return verify(documents.advance(target));
+		}
+
+		private int verify(int docId) {
+			while (docId != NO_MORE_DOCS && !matches())
+				docId = documents.nextDoc();
+			return docId;
+		}
+
+		//every cursor is on the document, the positions each term can end at are carried to the next term
+		private boolean matches() {
+			for (int t = 0; t < cursors.length; t++)
+				positions[t] = cursors[t].positions(positions[t]);
+			int count = cursors[0].termFrequency();
+			if (reached.length < count)
+				reached = new int[count];
+			System.arraycopy(positions[0], 0, reached, 0, count);
+			for (int t = 1; t < cursors.length && count > 0; t++) {
+				int tf = cursors[t].termFrequency();
+				if (next.length < tf)
+					next = new int[tf];
+				//both lists are increasing, so one pass finds the positions within distance after a reached one
+				int kept = 0, r = 0;
+				for (int i = 0; i < tf; i++) {
+					int position = positions[t][i];
+					while (r < count && reached[r] + distance < position)
+						r++;
+					if (r < count && reached[r] < position)
+						next[kept++] = position;
+				}
+				int[] swap = reached;
+				reached = next;
+				next = swap;
+				count = kept;
+			}
+			return count > 0;
+		}
+	}
+
+	//Union, the smallest current docId of the clauses
+	private static class OrIterator implements DocIdIterator {
+		private DocIdIterator[] clauses;
+		private int docId = -1, cost;
+
+		OrIterator(List<DocIdIterator> clauses) {
+			this.clauses = clauses.toArray(new DocIdIterator[0]);
+			for (DocIdIterator clause : clauses)
+				cost += clause.cost();
+		}
+
+		@Override
+		public int docId() {
+			return docId;
+		}
+
+		@Override
+		public int cost() {
+			return cost;
+		}
+
+		@Override
+		public int nextDoc() {
+			return advance(docId + 1);
+		}
+
+		@Override
+		public int advance(int target) {
+			if (target <= docId)
+				return docId;
+			int min = NO_MORE_DOCS;
+			for (DocIdIterator clause : clauses) {
+				int next = clause.docId() >= target ? clause.docId() : clause.advance(target);
+				min = Math.min(min, next);
+			}
+			return docId = min;
+		}
+	}
+
+	//docIds of the first iterator that are in none of the excluded ones
+	private static class AndNotIterator implements DocIdIterator {
+		private DocIdIterator include;
+		private DocIdIterator[] excluded;
+
+		AndNotIterator(DocIdIterator include, List<DocIdIterator> excluded) {
+			this.include = include;
+			this.excluded = excluded.toArray(new DocIdIterator[0]);
+		}
+
+		@Override
+		public int docId() {
+			return include.docId();
+		}
+
+		@Override
+		public int cost() {
+			return include.cost();
+		}
+
+		@Override
+		public int nextDoc() {
+			return skipExcluded(include.nextDoc());
+		}
+
+		@Override
+		public int advance(int target) {
+			if (target <= include.docId())
+				return include.docId();
+			return skipExcluded(include.advance(target));
+		}
+
+		private int skipExcluded(int docId) {
+			while (docId != NO_MORE_DOCS && isExcluded(docId))
+				docId = include.nextDoc();
+			return docId;
+		}
+
+		private boolean isExcluded(int docId) {
+			for (DocIdIterator iterator : excluded) {
+				if (iterator.advance(docId) == docId)
+					return true;
+			}
+			return false;
+		}
+	}
+
+	//Every document of the collection, for queries that start with NOT
+	private static class AllDocsIterator implements DocIdIterator {
+		private DocumentStatistics documents;
+		private int docId = -1;
+
+		AllDocsIterator(DocumentStatistics documents) {
+			this.documents = documents;
+		}
+
+		@Override
+		public int docId() {
+			return docId;
+		}
+
+		@Override
+		public int cost() {
+			return documents.getDocumentCount();
+		}
+
+		@Override
+		public int nextDoc() {
+			return advance(docId + 1);
+		}
+
+		@Override
+		public int advance(int target) {
+			if (target <= docId)
+				return docId;
+			for (docId = target; docId <= documents.getMaxDocId(); docId++) {
+				if (documents.contains(docId))
+					return docId;
+			}
+			return docId = NO_MORE_DOCS;
+		}
+	}
+
+	//Term that is not in the dictionary
+	private static class EmptyIterator implements DocIdIterator {
+		private int docId = -1;
+
+		@Override
+		public int docId() {
+			return docId;
+		}
+
+		@Override
+		public int cost() {
+			return 0;
+		}
+
+		@Override
+		public int nextDoc() {
+			return docId = NO_MORE_DOCS;
+		}
+
+		@Override
+		public int advance(int target) {
+			return docId = NO_MORE_DOCS;
+		}
+	}
+
+	//Matching docIds and the time taken by each query, against decoding the whole posting lists of its terms
+	//Usage: BooleanQuery Index_Version2.compressed "flow AND pressur AND boundari" ...
+	public static void main(String[] args) throws IOException {
+		IndexReader reader = new IndexReader(args[0]);
+		for (int q = 1; q < args.length; q++) {
+			int[] docIds = search(reader, args[q]);
+			long best = Long.MAX_VALUE, bestDecode = Long.MAX_VALUE;
+			for (int round = 0; round < 200; round++) {
+				long t0 = System.nanoTime();
+				search(reader, args[q]);
+				long t1 = System.nanoTime();
+				for (String term : args[q].split("[\\s()\"]+")) {
+					if (!term.isEmpty() && !term.equals("AND") && !term.equals("OR") && !term.equals("NOT") && !term.startsWith("~"))
+						reader.getTerm(term.toLowerCase());
+				}
+				long t2 = System.nanoTime();
+				best = Math.min(best, t1 - t0);
+				bestDecode = Math.min(bestDecode, t2 - t1);
+			}
+			System.out.println("Query :: " + args[q]);
+			System.out.println("Matches :: " + docIds.length + " " + Arrays.toString(Arrays.copyOf(docIds, Math.min(10, docIds.length))));
+			System.out.println("Time taken :: " + best / 1000.0 + " us, full decode of the terms :: " + bestDecode / 1000.0 + " us");
+		}
+	}
+}
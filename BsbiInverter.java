@@ -0,0 +1,296 @@
+//===========================================================================================================================
+//	Program : Class that inverts a collection larger than the heap by sorting blocks of postings to disk and merging them (BSBI)
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+public class BsbiInverter implements Inverter {
+	//bytes of one buffered (termId, docId, tf) posting
+	private static final int POSTING_BYTES = 12;
+	//docId gaps and tfs of the runs are written with delta codes
+	private static final PostingCodec RUN_CODEC = new DeltaCodec();
+
+	private String name;
+	private int capacity;
+	private HashMap<String, Integer> termIds = new HashMap<>();
+	private ArrayList<String> terms = new ArrayList<>();
+	private DocumentStatistics documents = new DocumentStatistics();
+	private int currentDocId;
+	//tf of each term in the current document and the terms it has
+	private int[] documentTfs = new int[1024];
+	private int[] documentTerms = new int[64];
+	private int documentTermCount;
+	//postings of the block being filled, in docId order
+	private int[] blockTermIds, blockDocIds, blockTfs;
+	private int blockSize;
+	private List<File> runs = new ArrayList<>();
+	private List<String> sortedTerms;
+
+	//the budget is the memory of the block buffers, the dictionary of terms is kept in memory besides
+	public BsbiInverter(String name, long memoryBudget) {
+		this.name = name;
+		capacity = (int) Math.max(1024, Math.min(Integer.MAX_VALUE - 8, memoryBudget / POSTING_BYTES));
+		int initial = Math.min(capacity, 1 << 16);
+		blockTermIds = new int[initial];
+		blockDocIds = new int[initial];
+		blockTfs = new int[initial];
+	}
+
+	@Override
+	public int termId(String term) {
+		Integer termId = termIds.get(term);
+		if (termId == null) {
+			termId = terms.size();
+			termIds.put(term, termId);
+			terms.add(term);
+			if (termId == documentTfs.length)
+				documentTfs = Arrays.copyOf(documentTfs, termId * 2);
+		}
+		return termId;
+	}
+
+	@Override
+	public DocumentStatistics getDocumentStatistics() {
+		return documents;
+	}
+
+	@Override
+	public void startDocument(int docId, int docLen) {
+		currentDocId = docId;
+		documents.startDocument(docId, docLen);
+	}
+
+	@Override
+	public void addToken(int termId) {
+		if (documentTfs[termId] == 0) {
+			if (documentTermCount == documentTerms.length)
+				documentTerms = Arrays.copyOf(documentTerms, documentTermCount * 2);
+			documentTerms[documentTermCount++] = termId;
+		}
+		documents.updateMaxTf(currentDocId, ++documentTfs[termId]);
+	}
+
+	//the postings of the document join the block, a full block is sorted and written as a run first
+	@Override
+	public void endDocument() throws IOException {
+		if (blockSize + documentTermCount > capacity)
+			writeRun();
+		if (blockSize + documentTermCount > blockTermIds.length) {
+			int size = (int) Math.min(capacity, Math.max(blockSize + documentTermCount, 2L * blockTermIds.length));
+			blockTermIds = Arrays.copyOf(blockTermIds, size);
+			blockDocIds = Arrays.copyOf(blockDocIds, size);
+			blockTfs = Arrays.copyOf(blockTfs, size);
+		}
+		for (int i = 0; i < documentTermCount; i++) {
+			int termId = documentTerms[i];
+			blockTermIds[blockSize] = termId;
+			blockDocIds[blockSize] = currentDocId;
+			blockTfs[blockSize++] = documentTfs[termId];
+			documentTfs[termId] = 0;
+		}
+		documentTermCount = 0;
+	}
+
+	//Sorts the block by term and docId and writes it as a run : per term its termId, df and the byte length
+	//of its postings, then the docId gaps and the tfs with RUN_CODEC, starting at a byte boundary
+	private void writeRun() throws IOException {
+		if (blockSize == 0)
+			return;
+		//the postings are in docId order, so a stable counting sort by term rank keeps docIds sorted within a term
+		int[] rank = termRanks();
+		int[] starts = new int[terms.size() + 1];
+		for (int i = 0; i < blockSize; i++)
+			starts[rank[blockTermIds[i]] + 1]++;
+		for (int r = 0; r < terms.size(); r++)
+			starts[r + 1] += starts[r];
+		int[] order = new int[blockSize];
+		int[] next = Arrays.copyOf(starts, starts.length);
+		for (int i = 0; i < blockSize; i++)
+			order[next[rank[blockTermIds[i]]]++] = i;
+		File run = File.createTempFile("bsbi-" + name + "-", ".run");
+		run.deleteOnExit();
+		BitOutputStream bits = new BitOutputStream();
+		int[] values = new int[64];
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16))) {
+			for (int r = 0; r < terms.size(); r++) {
+				int from = starts[r], to = starts[r + 1];
+				if (from == to)
+					continue;
+				int count = to - from;
+				if (values.length < count)
+					values = new int[count];
+				bits.reset();
+				int previous = 0;
+				for (int i = 0; i < count; i++) {
+					values[i] = blockDocIds[order[from + i]] - previous;
+					previous = blockDocIds[order[from + i]];
+				}
+				RUN_CODEC.encode(values, count, bits);
+				for (int i = 0; i < count; i++)
+					values[i] = blockTfs[order[from + i]];
+				RUN_CODEC.encode(values, count, bits);
+				out.writeInt(blockTermIds[order[from]]);
+				out.writeInt(count);
+				out.writeInt(bits.byteLength());
+				bits.writeTo(out);
+			}
+		}
+		runs.add(run);
+		blockSize = 0;
+	}
+
+	//rank of each termId in dictionary order of the terms seen so far
+	private int[] termRanks() {
+		Integer[] sorted = new Integer[terms.size()];
+		for (int termId = 0; termId < sorted.length; termId++)
+			sorted[termId] = termId;
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return TermDictionary.TERM_ORDER.compare(terms.get(o1), terms.get(o2));
+			}
+		});
+		int[] rank = new int[sorted.length];
+		for (int r = 0; r < sorted.length; r++)
+			rank[sorted[r]] = r;
+		return rank;
+	}
+
+	private void finish() throws IOException {
+		if (sortedTerms != null)
+			return;
+		writeRun();
+		blockTermIds = blockDocIds = blockTfs = null;
+		sortedTerms = new ArrayList<>(terms);
+		sortedTerms.sort(TermDictionary.TERM_ORDER);
+	}
+
+	@Override
+	public List<String> sortedTerms() throws IOException {
+		finish();
+		return sortedTerms;
+	}
+
+	public int getRunCount() {
+		return runs.size();
+	}
+
+	//k-way merge of the runs, each pass maps them again and holds one posting list at a time
+	@Override
+	public Iterable<DictionaryClass> postingLists() throws IOException {
+		finish();
+		return new Iterable<DictionaryClass>() {
+			@Override
+			public Iterator<DictionaryClass> iterator() {
+				try {
+					return new RunMerger();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	//deletes the runs once every pass over the postings is done
+	@Override
+	public void close() {
+		for (File run : runs)
+			run.delete();
+		runs.clear();
+	}
+
+	//One run being merged, at the term it is on
+	private class RunReader {
+		ByteBuffer buffer;
+		int runIndex, position, termId, count, length;
+
+		RunReader(File run, int runIndex) throws IOException {
+			try (RandomAccessFile file = new RandomAccessFile(run, "r")) {
+				FileChannel channel = file.getChannel();
+				buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+			}
+			this.runIndex = runIndex;
+			position = -1;
+		}
+
+		boolean next() {
+			position = position < 0 ? 0 : position + 12 + length;
+			if (position >= buffer.limit())
+				return false;
+			termId = buffer.getInt(position);
+			count = buffer.getInt(position + 4);
+			length = buffer.getInt(position + 8);
+			return true;
+		}
+
+		String term() {
+			return terms.get(termId);
+		}
+
+		//appends the postings of the current term, docIds of later runs are larger
+		void readPostings(PostingList postings, int[] gaps, int[] tfs) {
+			BitInputStream in = new BitInputStream(buffer, position + 12);
+			RUN_CODEC.decode(in, gaps, count);
+			RUN_CODEC.decode(in, tfs, count);
+			int docId = 0;
+			for (int i = 0; i < count; i++)
+				postings.add(docId += gaps[i], tfs[i]);
+		}
+	}
+
+	private class RunMerger implements Iterator<DictionaryClass> {
+		//ordered by term, then by run so postings of a term come out in docId order
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), new Comparator<RunReader>() {
+			@Override
+			public int compare(RunReader o1, RunReader o2) {
+				int cmp = TermDictionary.TERM_ORDER.compare(o1.term(), o2.term());
+				return cmp != 0 ? cmp : Integer.compare(o1.runIndex, o2.runIndex);
+			}
+		});
+		List<RunReader> current = new ArrayList<>();
+		int[] gaps = new int[64], tfs = new int[64];
+
+		RunMerger() throws IOException {
+			for (int i = 0; i < runs.size(); i++) {
+				RunReader reader = new RunReader(runs.get(i), i);
+				if (reader.next())
+					queue.add(reader);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public DictionaryClass next() {
+			if (queue.isEmpty())
+				throw new NoSuchElementException();
+			String term = queue.peek().term();
+			current.clear();
+			int size = 0;
+			while (!queue.isEmpty() && queue.peek().term().equals(term)) {
+				RunReader reader = queue.poll();
+				current.add(reader);
+				size += reader.count;
+			}
+			PostingList postings = new PostingList(size);
+			for (RunReader reader : current) {
+				if (gaps.length < reader.count) {
+					gaps = new int[reader.count];
+					tfs = new int[reader.count];
+				}
+				reader.readPostings(postings, gaps, tfs);
+				if (reader.next())
+					queue.add(reader);
+			}
+			return new DictionaryClass(term, postings.seal());
+		}
+	}
+}
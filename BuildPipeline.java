@@ -0,0 +1,270 @@
+//===========================================================================================================================
+//	Program : Class that streams the collection through reader, tokenizer, normalizer and inverter stages on their own threads
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class BuildPipeline {
+	//documents waiting between two stages, a stage that gets this far ahead blocks until the next one catches up
+	public static final int QUEUE_CAPACITY = 32;
+	//documents read but not inverted yet, whatever stage or queue they are in
+	public static final int MAX_IN_FLIGHT = 4 * QUEUE_CAPACITY;
+	//how often a blocked stage looks whether another one failed
+	private static final long WAIT_MILLIS = 50;
+
+	//One document on its way through the stages, each stage fills in its part and drops what is not needed any more
+	private static class Document {
+		int sequence, docId, docLen;
+		File file;
+		byte[] bytes;
+		List<String> tokens = new ArrayList<>();
+		List<String> lemmas = new ArrayList<>();
+		int[] stemIds;
+		//branches that have not inverted the document yet
+		AtomicInteger branchesLeft;
+	}
+
+	//One line of normalizers and an inverter that a tokenized document goes down, for the lemmas, the stems or both
+	//it ends by writing the indexes of its versions
+	private class Branch {
+		String name;
+		boolean lemmas, stems;
+		int normalizerCount;
+		StageQueue tokenized, normalized;
+
+		Branch(String name, boolean lemmas, boolean stems, int normalizerCount) {
+			this.name = name;
+			this.lemmas = lemmas;
+			this.stems = stems;
+			this.normalizerCount = normalizerCount;
+			String prefix = name.isEmpty() ? "" : name + "_";
+			tokenized = new StageQueue(prefix + "tokenized_queue");
+			normalized = new StageQueue(prefix + "normalized_queue");
+		}
+	}
+
+	//put after the last document, each worker of a stage puts it back for the others
+	private static final Document END = new Document();
+
+	private List<File> files;
+	private List<String> stopWords;
+	private int workerCount;
+	private List<Branch> branches = new ArrayList<>();
+	//taken by the reader in docId order and given back by the inverter, so the documents that wait for
+	//one slow document are bounded too, and the one the inverter waits for always has its permit
+	private Semaphore inFlight = new Semaphore(MAX_IN_FLIGHT);
+	private AtomicInteger tokenizersLeft;
+	private StageQueue read = new StageQueue("read_queue");
+	private List<Thread> threads = new ArrayList<>();
+	private volatile boolean stopped;
+	private Throwable failure;
+
+	//files in docId order, workerCount threads tokenize and as many lemmatize, so there should be as many lemmatizer pipelines
+	//concurrent sends every tokenized document to a lemma branch and a stem branch that invert and write on their own,
+	//otherwise one branch lemmatizes, stems and inverts both versions, and writes version 1 and then version 2
+	public BuildPipeline(List<File> files, List<String> stopWords, int workerCount, boolean concurrent) {
+		this.files = files;
+		this.stopWords = stopWords;
+		this.workerCount = workerCount;
+		tokenizersLeft = new AtomicInteger(workerCount);
+		if (concurrent) {
+			branches.add(new Branch("lemma", true, false, workerCount));
+			//stems mostly come from the stem cache, one thread keeps up
+			branches.add(new Branch("stem", false, true, 1));
+		} else {
+			branches.add(new Branch("", true, true, workerCount));
+		}
+	}
+
+	//Bounded queue between two stages, records its depth and how long the stages wait to put and take
+	private class StageQueue {
+		private String name;
+		private ArrayBlockingQueue<Document> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+
+		StageQueue(String name) {
+			this.name = name;
+		}
+
+		void put(Document document) throws InterruptedException {
+			if (!queue.offer(document)) {
+				long start = System.nanoTime();
+				while (!queue.offer(document, WAIT_MILLIS, TimeUnit.MILLISECONDS))
+					checkStopped();
+				Metrics.count(name + "_put_wait_ns", System.nanoTime() - start);
+			}
+			Metrics.sample(name + "_depth", queue.size());
+		}
+
+		Document take() throws InterruptedException {
+			Document document = queue.poll();
+			if (document == null) {
+				long start = System.nanoTime();
+				while ((document = queue.poll(WAIT_MILLIS, TimeUnit.MILLISECONDS)) == null)
+					checkStopped();
+				Metrics.count(name + "_take_wait_ns", System.nanoTime() - start);
+			}
+			return document;
+		}
+	}
+
+	private interface StageBody {
+		void run() throws Exception;
+	}
+
+	private void checkStopped() {
+		if (stopped)
+			throw new CancellationException();
+	}
+
+	private synchronized void fail(Throwable t) {
+		if (failure == null)
+			failure = t;
+		stopped = true;
+	}
+
+	private void startStage(String name, StageBody body) {
+		Thread thread = new Thread(() -> {
+			try {
+				body.run();
+			} catch (CancellationException e) {
+				//another stage failed first
+			} catch (Throwable t) {
+				fail(t);
+			}
+		}, "pipeline-" + name);
+		thread.setDaemon(true);
+		threads.add(thread);
+		thread.start();
+	}
+
+	//Runs every stage on its own threads and waits until the indexes of both versions are written
+	//at most MAX_IN_FLIGHT documents are in memory at once, however large the collection is
+	public void run() throws IOException {
+		startStage("reader", this::readDocuments);
+		for (int i = 0; i < workerCount; i++)
+			startStage("tokenizer-" + i, this::tokenizeDocuments);
+		for (Branch branch : branches) {
+			String suffix = branch.name.isEmpty() ? "" : "-" + branch.name;
+			for (int i = 0; i < branch.normalizerCount; i++)
+				startStage("normalizer" + suffix + "-" + i, () -> normalizeDocuments(branch));
+			startStage("inverter" + suffix, () -> invertDocuments(branch));
+		}
+		//the stages stop on their own once the last document is through, or soon after one of them fails
+		for (int i = 0; i < threads.size(); i++) {
+			try {
+				threads.get(i).join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				fail(e);
+				break;
+			}
+		}
+		stopped = true;
+		synchronized (this) {
+			if (failure instanceof IOException)
+				throw (IOException) failure;
+			if (failure instanceof RuntimeException)
+				throw (RuntimeException) failure;
+			if (failure instanceof Error)
+				throw (Error) failure;
+			if (failure != null)
+				throw new IOException("Build pipeline failed", failure);
+		}
+	}
+
+	//reading is kept apart from tokenizing, so the disk and the CPU work at the same time
+	private void readDocuments() throws IOException, InterruptedException {
+		for (int i = 0; i < files.size(); i++) {
+			if (!inFlight.tryAcquire()) {
+				long start = System.nanoTime();
+				while (!inFlight.tryAcquire(WAIT_MILLIS, TimeUnit.MILLISECONDS))
+					checkStopped();
+				Metrics.count("in_flight_wait_ns", System.nanoTime() - start);
+			}
+			Metrics.Span reading = Metrics.start(Metrics.READ);
+			Document document = new Document();
+			document.sequence = i;
+			document.branchesLeft = new AtomicInteger(branches.size());
+			document.file = files.get(i);
+			document.docId = Tokenize.docId(document.file);
+			document.bytes = Files.readAllBytes(document.file.toPath());
+			reading.end();
+			read.put(document);
+		}
+		read.put(END);
+	}
+
+	private void tokenizeDocuments() throws InterruptedException {
+		TokenScanner scanner = new TokenScanner(stopWords);
+		for (Document document = read.take(); document != END; document = read.take()) {
+			Metrics.Span tokenizing = Metrics.start(Metrics.TOKENIZE);
+			document.docLen = scanner.tokenize(ByteBuffer.wrap(document.bytes), document.tokens);
+			document.bytes = null;
+			tokenizing.end();
+			Metrics.count(Metrics.DOCUMENTS, 1);
+			Metrics.count(Metrics.TOKENS, document.tokens.size());
+			//the tokens are only read from here on, so the branches share them
+			for (Branch branch : branches)
+				branch.tokenized.put(document);
+		}
+		read.put(END);
+		//the normalizers stop once every tokenizer is done
+		if (tokenizersLeft.decrementAndGet() == 0) {
+			for (Branch branch : branches)
+				branch.tokenized.put(END);
+		}
+	}
+
+	//several tokenizers and normalizers take documents in order but can finish them out of order
+	private void normalizeDocuments(Branch branch) throws InterruptedException {
+		for (Document document = branch.tokenized.take(); document != END; document = branch.tokenized.take()) {
+			Metrics.Span normalizing = Metrics.start(Metrics.NORMALIZE);
+			if (branch.lemmas)
+				Lemmatize.lemmatizeDocument(document.tokens, document.lemmas);
+			if (branch.stems)
+				document.stemIds = Stemmer.stemDocument(document.tokens, null);
+			normalizing.end();
+			branch.normalized.put(document);
+		}
+		branch.tokenized.put(END);
+	}
+
+	//documents that come ahead of their turn wait in a map, it holds fewer than MAX_IN_FLIGHT
+	//a document is let go once every branch inverted it, and the branch then writes its indexes
+	private void invertDocuments(Branch branch) throws IOException, InterruptedException {
+		HashMap<Integer, Document> early = new HashMap<>();
+		String gauge = branch.name.isEmpty() ? "reorder_depth" : branch.name + "_reorder_depth";
+		for (int next = 0; next < files.size(); next++) {
+			Document document = early.remove(next);
+			while (document == null) {
+				Document taken = branch.normalized.take();
+				if (taken.sequence == next)
+					document = taken;
+				else
+					early.put(taken.sequence, taken);
+			}
+			Metrics.sample(gauge, early.size());
+			if (branch.lemmas)
+				Lemmatize.invertDocument(document.docId, document.docLen, document.lemmas);
+			if (branch.stems)
+				Stemmer.invertDocument(document.docId, document.docLen, document.stemIds, document.tokens.size());
+			if (document.branchesLeft.decrementAndGet() == 0)
+				inFlight.release();
+		}
+		if (branch.lemmas)
+			Lemmatize.buildIndex();
+		if (branch.stems)
+			Stemmer.buildIndex();
+	}
+}
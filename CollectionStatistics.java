@@ -0,0 +1,97 @@
+//===========================================================================================================================
+//	Program : Class that adds up the document count, docLens and dfs of the query terms over several indexes
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.*;
+
+public class CollectionStatistics {
+	private int documentCount;
+	private long totalDocLen;
+	//dfs of the query terms only, a term missing from every index has df 0
+	private HashMap<String, Integer> docFrequencies = new HashMap<>();
+
+	//statistics of a single index, what Ranker uses when it is not given any
+	public static CollectionStatistics of(IndexReader reader, Collection<String> terms) {
+		CollectionStatistics statistics = new CollectionStatistics();
+		statistics.add(reader, terms);
+		return statistics;
+	}
+
+	public void add(IndexReader reader, Collection<String> terms) {
+		documentCount += reader.getDocumentStatistics().getDocumentCount();
+		totalDocLen += reader.getTotalDocLen();
+		for (String term : new HashSet<>(terms)) {
+			int termIndex = reader.lookup(term.toLowerCase());
+			addDocFrequency(term.toLowerCase(), termIndex < 0 ? 0 : reader.getDocFrequency(termIndex));
+		}
+	}
+
+	//dfs of every term of the index
+	public void add(IndexReader reader) {
+		documentCount += reader.getDocumentStatistics().getDocumentCount();
+		totalDocLen += reader.getTotalDocLen();
+		int termIndex = 0;
+		for (String term : reader.getDictionary())
+			addDocFrequency(term, reader.getDocFrequency(termIndex++));
+	}
+
+	//statistics counted somewhere else, of an index in another process
+	public void add(int documentCount, long totalDocLen, Map<String, Integer> docFrequencies) {
+		this.documentCount += documentCount;
+		this.totalDocLen += totalDocLen;
+		for (Map.Entry<String, Integer> entry : docFrequencies.entrySet())
+			addDocFrequency(entry.getKey(), entry.getValue());
+	}
+
+	private void addDocFrequency(String term, int docFrequency) {
+		Integer sum = docFrequencies.get(term);
+		docFrequencies.put(term, (sum == null ? 0 : sum) + docFrequency);
+	}
+
+	//document count, total docLen, then the term count and each term with its df
+	public void writeTo(DataOutput out) throws IOException {
+		out.writeInt(documentCount);
+		out.writeLong(totalDocLen);
+		out.writeInt(docFrequencies.size());
+		for (Map.Entry<String, Integer> entry : docFrequencies.entrySet()) {
+			out.writeUTF(entry.getKey());
+			out.writeInt(entry.getValue());
+		}
+	}
+
+	public static CollectionStatistics read(DataInput in) throws IOException {
+		CollectionStatistics statistics = new CollectionStatistics();
+		statistics.documentCount = in.readInt();
+		statistics.totalDocLen = in.readLong();
+		int termCount = in.readInt();
+		for (int i = 0; i < termCount; i++)
+			statistics.docFrequencies.put(in.readUTF(), in.readInt());
+		return statistics;
+	}
+
+	public int getDocumentCount() {
+		return documentCount;
+	}
+
+	public long getTotalDocLen() {
+		return totalDocLen;
+	}
+
+	public double getAverageDocLen() {
+		return documentCount == 0 ? 0 : (double) totalDocLen / documentCount;
+	}
+
+	public int getDocFrequency(String term) {
+		Integer docFrequency = docFrequencies.get(term.toLowerCase());
+		return docFrequency == null ? 0 : docFrequency;
+	}
+
+	public Map<String, Integer> getDocFrequencies() {
+		return docFrequencies;
+	}
+}
@@ -4,15 +4,34 @@
 //	@author: Karthika Karunakaran
 // 	Date created: 2016/10/26
 //===========================================================================================================================
+import java.io.IOException;
+import java.nio.ByteBuffer;
 import java.util.*;
 
 public class Compression {
 	
-	public static List<Long> termPtr;
-	public static List<Long> frontCodeTermPtr;
-	public static List<String> longDictionaryTerms;
-	public static List<String> storeResult;
+	public static final int BLOCK_SIZE = 8;
+	//k of the blocked dictionary, set from the command line
+	public static int blockSize = BLOCK_SIZE;
+	//posting lists with at least this df get skip pointers and score bounds per skip block
+	public static final int SKIP_MIN_DF = 128;
+	//tf / maxTf bounds are stored rounded up to 1 / NTF_LEVELS
+	public static final int NTF_LEVELS = 15;
+	//"IRIX" at the start and the end of every compressed index, and the layout it is written in
+	public static final int MAGIC = 0x49524958;
+	public static final short FORMAT_VERSION = 3;
+	//magic, version, codec id, front coding, delta codes, positions, block size, term count, block count
+	public static final int HEADER_SIZE = 22;
+	//df, byte offset in the postings region and length in bits of one posting list
+	//offsets are ints like everywhere the index is mapped, a mapped file cannot be larger
+	public static final int LEXICON_ENTRY_SIZE = 12;
+	//and the byte offset of its positions in the positions region, for an index with positions
+	public static final int POSITIONAL_LEXICON_ENTRY_SIZE = 16;
+	//start of the documents, dictionary, block pointers, postings, positions and lexicon, document count, total docLen,
+	//posting count, max docId and the magic again
+	public static final int FOOTER_SIZE = 76;
 	//Convert to bit and return byte values
+	//String based reference encoders, the indexes are written with BitOutputStream and these are only kept to check it
 	public static byte[] convertToByteArray(String gammacode) {
 		BitSet bitSet = new BitSet(gammacode.length());
 		for (int i = 0; i < gammacode.length(); i++) {
@@ -44,114 +63,278 @@ public class Compression {
 		result = gammaNumber.concat(offset);
 		return result;
 	}
-	//To find the gaps between the docIds
-	public static List<Integer> gapsFinder(List<Integer> list) {
-		List<Integer> gapsForList = new LinkedList<>();
-		int index = 0, nextIndex = 0;
-		int firstIndex = list.get(index);
-		gapsForList.add(firstIndex);
-		while (index < list.size()) {
-			index++;
-			nextIndex = list.get(index);
-			gapsForList.add(firstIndex - nextIndex);
-			firstIndex = nextIndex;
-		}
-		return gapsForList;
+	//Blocking compression with K = blockSize, so pointers are set at every blockSize terms
+	//the dictionary is front coded if TRUE is passed
+	public static TermDictionary blockingCompression(TreeMap<String, DictionaryClass> info, boolean frontCoding) {
+		return blockingCompression(info.keySet(), frontCoding);
+	}
+
+	//the dictionary is returned and passed on to writeCompressedIndex, so both versions can be compressed at the same time
+	public static TermDictionary blockingCompression(Collection<String> sortedTerms, boolean frontCoding) {
+		Metrics.Span building = Metrics.start(Metrics.DICTIONARY);
+		TermDictionary built = TermDictionary.build(sortedTerms, blockSize, frontCoding);
+		building.end();
+		return built;
 	}
-	//Blocking compression with K = 8, so pointers are set at every 8 terms
-	public static void blockingCompression(TreeMap<String, DictionaryClass> info, boolean frontCoding) {
-		int k = 8, wordCount = 0; 
-		long totalCount = 0;
-		StringBuilder longString = new StringBuilder();
-		for(String term : info.keySet()) {
-			longString.append(term.length()+term);
+
+	//Writes the compressed index as header, documents, dictionary string, term pointers, postings region, positions region,
+	//lexicon and footer, the positions region is empty unless the posting lists have positions
+	//Every region has its start in the footer and ends where the next one starts, nothing in between is a separator
+	//The lexicon has a fixed size entry per term in dictionary order, so a posting list is found in O(1) from its term index
+	//The documents are one bit stream of docId gap, docLen and maxTf per document
+	//Each posting list is one bit stream starting at a byte boundary, df first, then the skip table and then the postings
+	//The postings are written in chunks of one skip interval, the docId gaps of a chunk and then its tfs, with the posting codec
+	//A skip is the docId before the skipped-to chunk and its bit offset in the postings, both as gaps from the previous skip
+	//With skips, each block of postings between two skips has bounds (max tf, min docLen, max tf / maxTf in NTF_LEVELS)
+	//for ranking, the first block's right after the df and the others' after their skip
+	//The df, skips, bounds and documents are gamma or delta codes whatever the posting codec is
+	//The positions of a term start at a byte boundary with the bit offset of the positions of every skip's chunk, as gaps,
+	//then the positions of each posting, the first one plus 1 and the others as gaps, with the same codes as the df
+	public static void writeCompressedIndex(IndexWriter newFile, TreeMap<String, DictionaryClass> info, DocumentStatistics documents, TermDictionary termDictionary, boolean deltaCodes, PostingCodec codec) throws IOException {
+		writeCompressedIndex(newFile, info.values(), info.size(), documents, termDictionary, deltaCodes, codec);
+	}
+
+	//the posting lists are written as they come, in the order of the dictionary, so they can be merged from disk
+	public static void writeCompressedIndex(IndexWriter newFile, Iterable<DictionaryClass> postingLists, int termCount, DocumentStatistics documents, TermDictionary termDictionary, boolean deltaCodes, PostingCodec codec) throws IOException {
+		long fileStart = newFile.getFilePointer();
+		Metrics.Span encoding = Metrics.start(Metrics.ENCODE);
+		BitOutputStream bits = new BitOutputStream();
+		int previous = 0;
+		//the footer holds the number of entries written here, the reader decodes exactly that many
+		int documentCount = 0;
+		for (int docId = 1; docId <= documents.getMaxDocId(); docId++) {
+			if (!documents.contains(docId))
+				continue;
+			writeNumber(bits, docId - previous, deltaCodes);
+			writeNumber(bits, documents.getDocLen(docId), deltaCodes);
+			writeNumber(bits, documents.getMaxTf(docId), deltaCodes);
+			previous = docId;
+			documentCount++;
 		}
-		longDictionaryTerms = new ArrayList<>();
-		int j = 0; 
-		while(j < longString.length() - 1) {
-			if (Character.isDigit(longString.charAt(j)) && Character.isDigit(longString.charAt(j + 1))) {
-				longDictionaryTerms.add(longString.charAt(j) + "" + longString.charAt(j + 1));
-				j++;
+		encoding.end();
+		//the first posting list tells whether the index has positions, the lists are only read once
+		Iterator<DictionaryClass> lists = postingLists.iterator();
+		DictionaryClass first = lists.hasNext() ? lists.next() : null;
+		boolean positional = first != null && first.getPostingList().hasPositions();
+		Metrics.Span writing = Metrics.start(Metrics.WRITE);
+		newFile.writeInt(MAGIC);
+		newFile.writeShort(FORMAT_VERSION);
+		newFile.writeByte(codec.getId());
+		newFile.writeBoolean(termDictionary.isFrontCoded());
+		newFile.writeBoolean(deltaCodes);
+		newFile.writeBoolean(positional);
+		newFile.writeInt(termDictionary.getBlockSize());
+		newFile.writeInt(termCount);
+		newFile.writeInt(termDictionary.getBlockCount());
+		long documentsStart = newFile.getFilePointer();
+		bits.writeTo(newFile);
+		long dictionaryStart = newFile.getFilePointer();
+		termDictionary.writeTo(newFile);
+		long blockPointersStart = newFile.getFilePointer();
+		termDictionary.writeBlockPointers(newFile);
+		long postingsStart = newFile.getFilePointer();
+		//the lexicon goes after the posting lists, once their offsets and lengths are known
+		ByteBuffer lexicon = ByteBuffer.allocate((positional ? POSITIONAL_LEXICON_ENTRY_SIZE : LEXICON_ENTRY_SIZE) * termCount);
+		//positions go after all the posting lists, so they are kept until then
+		BitOutputStream positionRegion = new BitOutputStream();
+		writing.end();
+		BitOutputStream postingBits = new BitOutputStream();
+		int[] gaps = new int[0], tfs = new int[0];
+		long postingCount = 0;
+		for (DictionaryClass dictionary = first; dictionary != null; dictionary = lists.hasNext() ? lists.next() : null) {
+			encoding = Metrics.start(Metrics.ENCODE);
+			PostingList postings = dictionary.getPostingList();
+			postingCount += postings.size();
+			int interval = skipInterval(postings.size(), codec);
+			boolean skips = postings.size() > interval;
+			if (gaps.length < interval) {
+				gaps = new int[interval];
+				tfs = new int[interval];
 			}
-			else 
-				longDictionaryTerms.add(String.valueOf(longString.charAt(j)));
-			j++;
-		}
-		//Freq	-->	PostingslistPtr	-->	termPtr
-		termPtr = new ArrayList<Long>();
-		for (String ch : longDictionaryTerms) {
-			if (ch == null) break;
-			if (ch.matches("\\d+")) {
-				if(wordCount % k == 0) {
-					termPtr.add(totalCount);
+			//docIds are stored as gaps, which are small numbers for frequent terms
+			//the postings go to their own stream first, so the skip table before them knows where each skip lands
+			postingBits.reset();
+			bits.reset();
+			writeNumber(bits, dictionary.getDocFrequency(), deltaCodes);
+			if (skips)
+				writeBlockBounds(bits, postings, 0, interval, documents, deltaCodes);
+			int previousDocId = 0, previousSkipDocId = 0;
+			long previousSkipOffset = 0;
+			for (int i = 0; i < postings.size(); i += interval) {
+				if (i > 0) {
+					//skip to chunk i, its gap is taken from the docId before it
+					writeNumber(bits, previousDocId - previousSkipDocId, deltaCodes);
+					writeNumber(bits, (int) (postingBits.bitLength() - previousSkipOffset), deltaCodes);
+					writeBlockBounds(bits, postings, i, i + interval, documents, deltaCodes);
+					previousSkipDocId = previousDocId;
+					previousSkipOffset = postingBits.bitLength();
 				}
-				wordCount++;
+				int count = Math.min(interval, postings.size() - i);
+				for (int j = 0; j < count; j++) {
+					gaps[j] = postings.getDocId(i + j) - previousDocId;
+					tfs[j] = postings.getTf(i + j);
+					previousDocId = postings.getDocId(i + j);
+				}
+				codec.encode(gaps, count, postingBits);
+				codec.encode(tfs, count, postingBits);
 			}
-			totalCount++;
-		}
-		//calling the front coding if TRUE is passed
-		if (frontCoding) {
-			storeResult = new ArrayList<>();
-			int ptr = 0;
-			while (ptr <  termPtr.size()) {
-				if (ptr ==  termPtr.size() - 1)
-					frontCoding(longDictionaryTerms.subList(termPtr.get(ptr).intValue(), longDictionaryTerms.size() - 1));
-				else
-					frontCoding(longDictionaryTerms.subList(termPtr.get(ptr).intValue(), termPtr.get(ptr + 1).intValue() - 1));
-				ptr++;
+			//byte aligned codes are aligned within the postings, so the postings start on a byte too
+			if (codec.isByteAligned())
+				bits.alignToByte();
+			bits.append(postingBits);
+			encoding.end();
+			lexicon.putInt(dictionary.getDocFrequency());
+			lexicon.putInt((int) (newFile.getFilePointer() - postingsStart));
+			lexicon.putInt((int) bits.bitLength());
+			if (positional) {
+				lexicon.putInt(positionRegion.byteLength());
+				writePositions(positionRegion, postings, interval, deltaCodes);
 			}
+			writing = Metrics.start(Metrics.WRITE);
+			bits.writeTo(newFile);
+			writing.end();
 		}
+		writing = Metrics.start(Metrics.WRITE);
+		long positionsStart = newFile.getFilePointer();
+		positionRegion.writeTo(newFile);
+		long lexiconStart = newFile.getFilePointer();
+		newFile.write(lexicon.array());
+		newFile.writeLong(documentsStart);
+		newFile.writeLong(dictionaryStart);
+		newFile.writeLong(blockPointersStart);
+		newFile.writeLong(postingsStart);
+		newFile.writeLong(positionsStart);
+		newFile.writeLong(lexiconStart);
+		newFile.writeInt(documentCount);
+		newFile.writeLong(documents.totalDocLen());
+		newFile.writeLong(postingCount);
+		newFile.writeInt(documents.getMaxDocId());
+		newFile.writeInt(MAGIC);
+		long end = newFile.getFilePointer();
+		writing.end();
+		Metrics.count(Metrics.POSTINGS, postingCount);
+		Metrics.count(Metrics.COMPRESSED_BYTES, end - fileStart);
 	}
 
-	//Front code technique
-	public static void frontCoding (List<String> longDictionaryTerms) {
-		frontCodeTermPtr = new ArrayList<>();
-		frontCodeTermPtr.addAll(termPtr);
-		int iPtr = 1, jPtr = 1, help = 0, tmpiPtr = 0,lastStoreIndex = 0;
-		String remain = "";
-		while (jPtr < longDictionaryTerms.size()) {
-			iPtr = 1;
-			tmpiPtr = iPtr;
-			while(!isDigit(longDictionaryTerms.get(iPtr))) {
-				iPtr++;
+	//positions of one posting list at the next byte of the region, the chunk offsets let a cursor that jumped with a skip
+	//find the positions of the chunk it landed in
+	private static void writePositions(BitOutputStream region, PostingList postings, int interval, boolean deltaCodes) {
+		BitOutputStream positionBits = new BitOutputStream();
+		int[] positions = postings.getPositions();
+		long[] chunkOffsets = new long[(postings.size() - 1) / interval];
+		int at = 0;
+		for (int i = 0; i < postings.size(); i++) {
+			if (i > 0 && i % interval == 0)
+				chunkOffsets[i / interval - 1] = positionBits.bitLength();
+			int previous = -1;
+			for (int end = at + postings.getTf(i); at < end; at++) {
+				writeNumber(positionBits, positions[at] - previous, deltaCodes);
+				previous = positions[at];
 			}
-			if (jPtr == 1)
-				jPtr = iPtr + 1;
-			while (jPtr < longDictionaryTerms.size() && longDictionaryTerms.get(tmpiPtr).equals(longDictionaryTerms.get(jPtr))) {
-				tmpiPtr++;
-				jPtr++;
-			}
-			//term pointer for front code
-			frontCodeTermPtr.add((long) help);
-			if (help < tmpiPtr) {
-				storeResult.addAll(longDictionaryTerms.subList(help, tmpiPtr));
-				help = tmpiPtr;
-				storeResult.add("*");
-				help++;
-				storeResult.addAll(longDictionaryTerms.subList(tmpiPtr, iPtr));
-				lastStoreIndex = help + iPtr - tmpiPtr;
-				storeResult.add(String.valueOf(iPtr - tmpiPtr)); 
-				help = ++lastStoreIndex;
+		}
+		long previousOffset = 0;
+		for (long offset : chunkOffsets) {
+			writeNumber(region, (int) (offset - previousOffset), deltaCodes);
+			previousOffset = offset;
+		}
+		region.append(positionBits);
+		region.alignToByte();
+	}
+
+	//a skip pointer every sqrt(df) postings, (df - 1) / interval of them, or every block for block codecs
+	//shorter lists are decoded whole, their skip table would cost more space than it saves time
+	public static int skipInterval(int docFrequency, PostingCodec codec) {
+		if (docFrequency < SKIP_MIN_DF)
+			return Math.max(1, docFrequency);
+		if (codec.getBlockSize() > 0)
+			return codec.getBlockSize();
+		return (int) Math.ceil(Math.sqrt(docFrequency));
+	}
+
+	//bounds of the postings from start to end that no posting of the block can score above
+	private static void writeBlockBounds(BitOutputStream bits, PostingList postings, int start, int end, DocumentStatistics documents, boolean deltaCodes) {
+		int maxTf = 1, minDocLen = Integer.MAX_VALUE, maxNtf = 1;
+		for (int i = start; i < Math.min(end, postings.size()); i++) {
+			int docId = postings.getDocId(i), tf = postings.getTf(i);
+			maxTf = Math.max(maxTf, tf);
+			minDocLen = Math.min(minDocLen, Math.max(1, documents.getDocLen(docId)));
+			maxNtf = Math.max(maxNtf, ntfLevel(tf, documents.getMaxTf(docId)));
+		}
+		writeNumber(bits, maxTf, deltaCodes);
+		writeNumber(bits, minDocLen, deltaCodes);
+		writeNumber(bits, maxNtf, deltaCodes);
+	}
+
+	//tf / maxTf rounded up to a level out of NTF_LEVELS, at least 1
+	public static int ntfLevel(int tf, int maxTf) {
+		return Math.max(1, (NTF_LEVELS * tf + maxTf - 1) / Math.max(1, maxTf));
+	}
+
+	private static void writeNumber(BitOutputStream bits, int number, boolean deltaCodes) {
+		if (deltaCodes)
+			bits.writeDelta(number);
+		else
+			bits.writeGamma(number);
+	}
+
+	//Space and decode speed of every posting codec on the postings of an index
+	//Usage: Compression [index]
+	public static void main(String[] args) throws IOException {
+		IndexReader reader = new IndexReader(args.length > 0 ? args[0] : "Index_Version1.compressed");
+		List<PostingList> lists = new ArrayList<>(reader.getTermCount());
+		long postingCount = 0;
+		for (int i = 0; i < reader.getTermCount(); i++) {
+			PostingList postings = reader.readPostings(null, i).getPostingList();
+			lists.add(postings);
+			postingCount += postings.size();
+		}
+		System.out.println("Posting lists :: " + lists.size() + ", postings :: " + postingCount);
+		System.out.println("Codec		Bits/posting	Decode ints/ns");
+		for (PostingCodec codec : PostingCodec.all()) {
+			//the gaps and tfs of each chunk, as the index writer lays them out
+			BitOutputStream out = new BitOutputStream();
+			int[] values = new int[SKIP_MIN_DF];
+			for (PostingList postings : lists) {
+				int interval = skipInterval(postings.size(), codec);
+				if (values.length < interval)
+					values = new int[interval];
+				if (codec.isByteAligned())
+					out.alignToByte();
+				int previousDocId = 0;
+				for (int i = 0; i < postings.size(); i += interval) {
+					int count = Math.min(interval, postings.size() - i);
+					for (int j = 0; j < count; j++) {
+						values[j] = postings.getDocId(i + j) - previousDocId;
+						previousDocId = postings.getDocId(i + j);
+					}
+					codec.encode(values, count, out);
+					for (int j = 0; j < count; j++)
+						values[j] = postings.getTf(i + j);
+					codec.encode(values, count, out);
+				}
 			}
-			remain = "$";
-			while(jPtr < longDictionaryTerms.size() && !isDigit(longDictionaryTerms.get(jPtr))) {
-				remain = remain + " " + longDictionaryTerms.get(jPtr);
-				jPtr++;
+			ByteBuffer buffer = ByteBuffer.wrap(Arrays.copyOf(out.toBytes(), out.byteLength() + 8));
+			BitInputStream in = new BitInputStream(buffer, 0);
+			long best = Long.MAX_VALUE;
+			for (int round = 0; round < 20; round++) {
+				in.seek(0);
+				long t0 = System.nanoTime();
+				for (PostingList postings : lists) {
+					int interval = skipInterval(postings.size(), codec);
+					if (codec.isByteAligned())
+						in.alignToByte();
+					for (int i = 0; i < postings.size(); i += interval) {
+						int count = Math.min(interval, postings.size() - i);
+						codec.decode(in, values, count);
+						codec.decode(in, values, count);
+						//a codec that reads too few or too many bits leaves the tfs after it off
+						if (round == 0 && values[count - 1] != postings.getTf(i + count - 1))
+							throw new IllegalStateException(codec.getName() + " decoded tf " + values[count - 1] + " for " + postings.getTf(i + count - 1));
+					}
+				}
+				best = Math.min(best, System.nanoTime() - t0);
 			}
-			remain =  remain + " " + remain.length();
-			for(String s : remain.split(" "))
-				storeResult.add(s);
-			lastStoreIndex = help + remain.length();
-			help = lastStoreIndex++;
-			jPtr++;
+			System.out.println(String.format("%-12s\t%.2f\t\t%.3f", codec.getName(), (double) out.bitLength() / postingCount, 2.0 * postingCount / best));
 		}
 	}
-	
-	//To check if a string is a digit
-	public static boolean isDigit (String digit) {
-		boolean flag = true;
-		if (!digit.matches("\\d*"))
-			flag = false;
-		return flag;
-	}
 }
@@ -0,0 +1,39 @@
+//===========================================================================================================================
+//	Program : Posting codec that writes each value as an Elias delta code
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public class DeltaCodec implements PostingCodec {
+	@Override
+	public int getId() {
+		return DELTA;
+	}
+
+	@Override
+	public String getName() {
+		return "delta";
+	}
+
+	@Override
+	public int getBlockSize() {
+		return 0;
+	}
+
+	@Override
+	public boolean isByteAligned() {
+		return false;
+	}
+
+	@Override
+	public void encode(int[] values, int count, BitOutputStream out) {
+		for (int i = 0; i < count; i++)
+			out.writeDelta(values[i]);
+	}
+
+	@Override
+	public void decode(BitInputStream in, int[] values, int count) {
+		for (int i = 0; i < count; i++)
+			values[i] = in.readDelta();
+	}
+}
@@ -4,20 +4,24 @@
 //	@author: Karthika Karunakaran
 // 	Date created: 2016/10/26
 //===========================================================================================================================
-import java.util.*;
-
 public class DictionaryClass{
 	private String term;
-    private TreeMap<Integer, DocDetails> postingList;
+    private PostingList postingList;
 	private Integer docFrequency = new Integer(0);
 	
-	public DictionaryClass(String term, Integer docId, Integer docLen, Integer maxTf, Integer termFrequency, Integer docFrequency) {
+	public DictionaryClass(String term, Integer docId, Integer termFrequency, Integer docFrequency) {
 		this.term = term;
-		this.postingList = new TreeMap<Integer, DocDetails>();
-		this.postingList.put(docId, new DocDetails(docLen, maxTf, termFrequency));
+		this.postingList = new PostingList();
+		this.postingList.add(docId, termFrequency);
 		this.docFrequency = docFrequency;
 	}
 
+	public DictionaryClass(String term, PostingList postingList) {
+		this.term = term;
+		this.postingList = postingList;
+		this.docFrequency = postingList.size();
+	}
+
 	public String getTerm() {
 		return term;
 	}
@@ -26,11 +30,11 @@ public class DictionaryClass{
 		this.term = term;
 	}
 
-	public TreeMap<Integer, DocDetails> getPostingList() {
+	public PostingList getPostingList() {
 		return postingList;
 	}
 
-	public void setPostingList(TreeMap<Integer, DocDetails> postingList) {
+	public void setPostingList(PostingList postingList) {
 		this.postingList = postingList;
 	}
 
@@ -0,0 +1,21 @@
+//===========================================================================================================================
+//	Program : Interface for walking the docIds of a posting list or of a query in increasing order
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public interface DocIdIterator {
+	//docId returned once the iterator is exhausted, larger than every real docId
+	int NO_MORE_DOCS = Integer.MAX_VALUE;
+
+	//current docId, -1 before the first call to nextDoc or advance
+	int docId();
+
+	int nextDoc();
+
+	//moves to the first docId that is not smaller than the target and returns it, never moves backwards
+	int advance(int target);
+
+	//upper bound on the number of docIds, used to order the lists of an intersection
+	int cost();
+}
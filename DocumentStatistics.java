@@ -0,0 +1,100 @@
+//===========================================================================================================================
+//	Program : Class that holds docLen and max tf of every document, indexed by docId
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.util.Arrays;
+
+public class DocumentStatistics {
+	private int[] docLens;
+	private int[] maxTfs;
+	private int maxDocId = 0;
+	private int documentCount = 0;
+
+	public DocumentStatistics() {
+		this(1024);
+	}
+
+	public DocumentStatistics(int capacity) {
+		docLens = new int[Math.max(1, capacity)];
+		maxTfs = new int[docLens.length];
+	}
+
+	//docLen is known before the terms, max tf grows while the terms of the document are counted
+	public void startDocument(int docId, int docLen) {
+		if (docId >= docLens.length) {
+			int size = Math.max(docId + 1, docLens.length * 2);
+			docLens = Arrays.copyOf(docLens, size);
+			maxTfs = Arrays.copyOf(maxTfs, size);
+		}
+		//a document without words is left out like contains() leaves it out, so the count is what the index stores
+		if (docLens[docId] == 0 && docLen > 0)
+			documentCount++;
+		else if (docLens[docId] > 0 && docLen == 0)
+			documentCount--;
+		docLens[docId] = docLen;
+		maxDocId = Math.max(maxDocId, docId);
+	}
+
+	public void updateMaxTf(int docId, int termFrequency) {
+		if (termFrequency > maxTfs[docId])
+			maxTfs[docId] = termFrequency;
+	}
+
+	public void setMaxTf(int docId, int maxTf) {
+		maxTfs[docId] = maxTf;
+	}
+
+	public boolean contains(int docId) {
+		return docId > 0 && docId <= maxDocId && docLens[docId] > 0;
+	}
+
+	public int getDocLen(int docId) {
+		return docLens[docId];
+	}
+
+	public int getMaxTf(int docId) {
+		return maxTfs[docId];
+	}
+
+	public int getMaxDocId() {
+		return maxDocId;
+	}
+
+	public int getDocumentCount() {
+		return documentCount;
+	}
+
+	//average docLen of the collection, used by BM25
+	public double averageDocLen() {
+		return documentCount == 0 ? 0 : (double) totalDocLen() / documentCount;
+	}
+
+	public long totalDocLen() {
+		long total = 0;
+		for (int docId = 1; docId <= maxDocId; docId++)
+			total += docLens[docId];
+		return total;
+	}
+
+	//For finding doc with max length, the smallest docId wins a tie
+	public int docIdWithMaxDocLen() {
+		int best = 0;
+		for (int docId = 1; docId <= maxDocId; docId++) {
+			if (docLens[docId] > docLens[best])
+				best = docId;
+		}
+		return best;
+	}
+
+	//For finding doc with max tf
+	public int docIdWithMaxTf() {
+		int best = 0;
+		for (int docId = 1; docId <= maxDocId; docId++) {
+			if (maxTfs[docId] > maxTfs[best])
+				best = docId;
+		}
+		return best;
+	}
+}
@@ -0,0 +1,76 @@
+//===========================================================================================================================
+//	Program : Posting codec that writes the running sums of the values as Elias-Fano low and high bits
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public class EliasFanoCodec implements PostingCodec {
+	@Override
+	public int getId() {
+		return ELIAS_FANO;
+	}
+
+	@Override
+	public String getName() {
+		return "eliasfano";
+	}
+
+	@Override
+	public int getBlockSize() {
+		return 0;
+	}
+
+	@Override
+	public boolean isByteAligned() {
+		return false;
+	}
+
+	//The sums x go up to u, each one is split into its low l = log2(u / n) bits, written as they are,
+	//and its high bits, written as the unary gap from the one before
+	@Override
+	public void encode(int[] values, int count, BitOutputStream out) {
+		if (count == 0)
+			return;
+		long upper = 0;
+		for (int i = 0; i < count; i++)
+			upper += values[i];
+		out.writeGamma((int) upper);
+		int lowBits = lowBits(upper, count);
+		long sum = 0;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+			out.writeBits(sum, lowBits);
+		}
+		sum = 0;
+		long previousHigh = 0;
+		for (int i = 0; i < count; i++) {
+			sum += values[i];
+			long high = sum >>> lowBits;
+			for (long gap = high - previousHigh; gap > 0; gap -= Math.min(gap, 63))
+				out.writeBits(-1L, (int) Math.min(gap, 63));
+			out.writeBit(false);
+			previousHigh = high;
+		}
+	}
+
+	@Override
+	public void decode(BitInputStream in, int[] values, int count) {
+		if (count == 0)
+			return;
+		long upper = in.readGamma();
+		int lowBits = lowBits(upper, count);
+		for (int i = 0; i < count; i++)
+			values[i] = (int) in.readBits(lowBits);
+		long high = 0, previous = 0;
+		for (int i = 0; i < count; i++) {
+			high += in.readUnary();
+			long sum = (high << lowBits) | values[i];
+			values[i] = (int) (sum - previous);
+			previous = sum;
+		}
+	}
+
+	private static int lowBits(long upper, int count) {
+		return upper <= count ? 0 : 63 - Long.numberOfLeadingZeros(upper / count);
+	}
+}
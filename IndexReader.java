@@ -0,0 +1,191 @@
+//===========================================================================================================================
+//	Program : Class that memory maps a compressed index and decodes posting lists on demand
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+
+public class IndexReader implements Closeable {
+	private MappedByteBuffer buffer;
+	private int termCount, blockSize, blockCount;
+	private boolean frontCoded, deltaCodes, positional;
+	private PostingCodec codec;
+	private int postingsStart, positionsStart, lexiconStart, lexiconEntrySize;
+	private long postingCount;
+	private BitInputStream bits;
+	private DocumentStatistics documents;
+	private long totalDocLen;
+	private double averageDocLen;
+	private TermDictionary dictionary;
+
+	public IndexReader(String fileName) throws IOException {
+		try (RandomAccessFile file = new RandomAccessFile(fileName, "r")) {
+			FileChannel channel = file.getChannel();
+			buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+		}
+		//header and footer written by Compression.writeCompressedIndex, the magic at both ends shows the file is whole
+		int footer = buffer.capacity() - Compression.FOOTER_SIZE;
+		if (footer < Compression.HEADER_SIZE || buffer.getInt(0) != Compression.MAGIC || buffer.getInt(buffer.capacity() - 4) != Compression.MAGIC)
+			throw new IOException(fileName + " is not a compressed index or is cut short");
+		if (buffer.getShort(4) != Compression.FORMAT_VERSION)
+			throw new IOException(fileName + " has format version " + buffer.getShort(4) + ", this reader reads " + Compression.FORMAT_VERSION);
+		try {
+			codec = PostingCodec.forId(buffer.get(6));
+		} catch (IllegalArgumentException e) {
+			throw new IOException(fileName + " uses unknown codec " + buffer.get(6));
+		}
+		frontCoded = buffer.get(7) != 0;
+		deltaCodes = buffer.get(8) != 0;
+		positional = buffer.get(9) != 0;
+		blockSize = buffer.getInt(10);
+		termCount = buffer.getInt(14);
+		blockCount = buffer.getInt(18);
+		int documentsStart = (int) buffer.getLong(footer);
+		int dictionaryStart = (int) buffer.getLong(footer + 8);
+		int blockPointersStart = (int) buffer.getLong(footer + 16);
+		postingsStart = (int) buffer.getLong(footer + 24);
+		positionsStart = (int) buffer.getLong(footer + 32);
+		lexiconStart = (int) buffer.getLong(footer + 40);
+		int documentCount = buffer.getInt(footer + 48);
+		totalDocLen = buffer.getLong(footer + 52);
+		postingCount = buffer.getLong(footer + 60);
+		int maxDocId = buffer.getInt(footer + 68);
+		lexiconEntrySize = positional ? Compression.POSITIONAL_LEXICON_ENTRY_SIZE : Compression.LEXICON_ENTRY_SIZE;
+		int[] blockPtr = new int[blockCount];
+		for (int i = 0; i < blockCount; i++)
+			blockPtr[i] = buffer.getInt(blockPointersStart + 4 * i);
+		//the terms are searched in the mapped file, only the block pointers are copied
+		dictionary = new TermDictionary(buffer, dictionaryStart, blockPointersStart - dictionaryStart, blockPtr, termCount, blockSize, frontCoded);
+		bits = new BitInputStream(buffer, documentsStart);
+		documents = new DocumentStatistics(maxDocId + 1);
+		int docId = 0;
+		for (int i = 0; i < documentCount; i++) {
+			docId += readNumber();
+			documents.startDocument(docId, readNumber());
+			documents.setMaxTf(docId, readNumber());
+		}
+		//the entries have to fill the documents region, otherwise the count and the region do not belong together
+		if ((bits.bitPosition() + 7) / 8 != dictionaryStart - documentsStart)
+			throw new IOException(fileName + " has " + documentCount + " document entries that do not fill the documents region");
+		averageDocLen = documentCount == 0 ? 0 : (double) totalDocLen / documentCount;
+	}
+
+	//docLen and max tf of the documents, decoded once when the index is opened
+	public DocumentStatistics getDocumentStatistics() {
+		return documents;
+	}
+
+	public double getAverageDocLen() {
+		return averageDocLen;
+	}
+
+	public long getTotalDocLen() {
+		return totalDocLen;
+	}
+
+	public int getTermCount() {
+		return termCount;
+	}
+
+	public long getPostingCount() {
+		return postingCount;
+	}
+
+	//whether the index was built with -positions, phrase and proximity queries need it
+	public boolean hasPositions() {
+		return positional;
+	}
+
+	//returns the term with its decoded posting list, null if the term is not in the dictionary
+	public DictionaryClass getTerm(String term) {
+		int termIndex = lookup(term);
+		if (termIndex < 0)
+			return null;
+		return readPostings(term, termIndex);
+	}
+
+	//binary search on the first term of every block and then a scan inside the block
+	public int lookup(String term) {
+		return dictionary.lookup(term);
+	}
+
+	//decodes the terms of one block
+	public String[] readBlock(int block) {
+		return dictionary.readBlock(block);
+	}
+
+	public TermDictionary getDictionary() {
+		return dictionary;
+	}
+
+	public PostingCodec getPostingCodec() {
+		return codec;
+	}
+
+	//decodes only the posting list of the given term
+	public DictionaryClass readPostings(String term, int termIndex) {
+		PostingsCursor cursor = openPostings(termIndex);
+		PostingList postings = new PostingList(cursor.getDocFrequency());
+		while (cursor.nextDoc() != DocIdIterator.NO_MORE_DOCS)
+			postings.add(cursor.docId(), cursor.termFrequency());
+		return new DictionaryClass(term, postings.seal());
+	}
+
+	//df of a term, from its lexicon entry
+	public int getDocFrequency(int termIndex) {
+		return buffer.getInt(lexiconStart + lexiconEntrySize * termIndex);
+	}
+
+	//length in bits of the posting list of a term, df and skip table included
+	public int getPostingsBitLength(int termIndex) {
+		return buffer.getInt(lexiconStart + lexiconEntrySize * termIndex + 8);
+	}
+
+	//cursor over the compressed posting list, nothing is decoded but the df and the skip table
+	//the positions are only read if the cursor is asked for them
+	public PostingsCursor openPostings(int termIndex) {
+		int entry = lexiconStart + lexiconEntrySize * termIndex;
+		int positionsOffset = positional ? positionsStart + buffer.getInt(entry + 12) : -1;
+		return new PostingsCursor(buffer, postingsStart + buffer.getInt(entry + 4), deltaCodes, codec, positionsOffset);
+	}
+
+	//drops the reader's hold on the mapping, the garbage collector unmaps the file once no cursor still reads it,
+	//so queries that are running finish on their own cursors and only new lookups on this reader fail
+	@Override
+	public void close() {
+		buffer = null;
+		dictionary = null;
+	}
+
+	private int readNumber() {
+		return deltaCodes ? bits.readDelta() : bits.readGamma();
+	}
+
+	//Usage: IndexReader Index_Version2.compressed flow pressur
+	public static void main(String[] args) throws IOException {
+		Timer timeOpen = new Timer();
+		IndexReader reader = new IndexReader(args[0]);
+		System.out.println("Time taken to open " + args[0] + " :: " + timeOpen.end());
+		for (int i = 1; i < args.length; i++) {
+			DictionaryClass dictionary = reader.getTerm(args[i]);
+			if (dictionary == null) {
+				System.out.println(args[i] + " :: not in the dictionary");
+				continue;
+			}
+			System.out.println(args[i] + " :: df " + dictionary.getDocFrequency());
+			System.out.println("Doc_Id\tDoc_Length\tTerm_Frequency\tMax_tf");
+			PostingList postings = dictionary.getPostingList();
+			DocumentStatistics documents = reader.getDocumentStatistics();
+			for (int p = 0; p < postings.size(); p++) {
+				int docId = postings.getDocId(p);
+				System.out.println(docId + "\t" + documents.getDocLen(docId) + "\t\t" + postings.getTf(p) + "\t\t" + documents.getMaxTf(docId));
+			}
+		}
+	}
+}
@@ -0,0 +1,176 @@
+//===========================================================================================================================
+//	Program : Class that writes an index file through a large direct buffer and publishes it only once it is complete
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+//The bytes go to a temporary file next to the index, commit() flushes, syncs and renames it over the index, so
+//readers see the old index or the new one and never a part, and a shorter index leaves nothing of a longer one
+//close() without commit() throws the temporary file away
+//Numbers are big endian like RandomAccessFile, so the files are the same as before
+public class IndexWriter implements DataOutput, Closeable {
+	public static final int BUFFER_SIZE = 1 << 20;
+	//with gathering writes, arrays at least this long go to the channel together with the buffer instead of being copied
+	public static final int GATHER_MIN = 1 << 13;
+	private static final String TEMP_SUFFIX = ".tmp";
+	//gathering writes for the writers that do not ask, set from the command line
+	public static boolean gatheringWrites = false;
+
+	private File file, temp;
+	private FileChannel channel;
+	private ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+	private boolean gathering;
+	//bytes already handed to the channel, the file pointer is this plus what the buffer holds
+	private long flushed;
+	private boolean committed;
+
+	public IndexWriter(File file) throws IOException {
+		this(file, gatheringWrites);
+	}
+
+	public IndexWriter(File file, boolean gathering) throws IOException {
+		this.file = file;
+		this.gathering = gathering;
+		temp = new File(file.getPath() + TEMP_SUFFIX);
+		channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+	}
+
+	public long getFilePointer() {
+		return flushed + buffer.position();
+	}
+
+	public void flush() throws IOException {
+		buffer.flip();
+		while (buffer.hasRemaining())
+			flushed += channel.write(buffer);
+		buffer.clear();
+	}
+
+	private void ensureRoom(int n) throws IOException {
+		if (buffer.remaining() < n)
+			flush();
+	}
+
+	//the index is only renamed into place once every byte of it is on disk
+	public void commit() throws IOException {
+		flush();
+		channel.force(true);
+		channel.close();
+		Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		committed = true;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (committed)
+			return;
+		channel.close();
+		temp.delete();
+	}
+
+	@Override
+	public void write(int b) throws IOException {
+		ensureRoom(1);
+		buffer.put((byte) b);
+	}
+
+	@Override
+	public void write(byte[] b) throws IOException {
+		write(b, 0, b.length);
+	}
+
+	@Override
+	public void write(byte[] b, int off, int len) throws IOException {
+		if (gathering && len >= GATHER_MIN) {
+			//one system call for what is buffered and the array
+			buffer.flip();
+			ByteBuffer[] buffers = { buffer, ByteBuffer.wrap(b, off, len) };
+			while (buffers[1].hasRemaining())
+				flushed += channel.write(buffers);
+			buffer.clear();
+			return;
+		}
+		while (len > 0) {
+			if (!buffer.hasRemaining())
+				flush();
+			int n = Math.min(len, buffer.remaining());
+			buffer.put(b, off, n);
+			off += n;
+			len -= n;
+		}
+	}
+
+	@Override
+	public void writeBoolean(boolean v) throws IOException {
+		write(v ? 1 : 0);
+	}
+
+	@Override
+	public void writeByte(int v) throws IOException {
+		write(v);
+	}
+
+	@Override
+	public void writeShort(int v) throws IOException {
+		ensureRoom(2);
+		buffer.putShort((short) v);
+	}
+
+	@Override
+	public void writeChar(int v) throws IOException {
+		ensureRoom(2);
+		buffer.putChar((char) v);
+	}
+
+	@Override
+	public void writeInt(int v) throws IOException {
+		ensureRoom(4);
+		buffer.putInt(v);
+	}
+
+	@Override
+	public void writeLong(long v) throws IOException {
+		ensureRoom(8);
+		buffer.putLong(v);
+	}
+
+	@Override
+	public void writeFloat(float v) throws IOException {
+		writeInt(Float.floatToIntBits(v));
+	}
+
+	@Override
+	public void writeDouble(double v) throws IOException {
+		writeLong(Double.doubleToLongBits(v));
+	}
+
+	//the low byte of every char, like RandomAccessFile.writeBytes, without a byte array per string
+	@Override
+	public void writeBytes(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++) {
+			if (!buffer.hasRemaining())
+				flush();
+			buffer.put((byte) s.charAt(i));
+		}
+	}
+
+	@Override
+	public void writeChars(String s) throws IOException {
+		for (int i = 0; i < s.length(); i++)
+			writeChar(s.charAt(i));
+	}
+
+	@Override
+	public void writeUTF(String s) throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		new DataOutputStream(bytes).writeUTF(s);
+		write(bytes.toByteArray());
+	}
+}
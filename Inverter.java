@@ -0,0 +1,31 @@
+//===========================================================================================================================
+//	Program : Interface for the inverters that turn documents in docId order into posting lists
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.IOException;
+import java.util.List;
+
+public interface Inverter {
+	//termId of a term, a new id is given the first time a term is seen
+	int termId(String term);
+
+	DocumentStatistics getDocumentStatistics();
+
+	void startDocument(int docId, int docLen) throws IOException;
+
+	void addToken(int termId);
+
+	void endDocument() throws IOException;
+
+	//terms of all the documents in dictionary order, once every document is added
+	List<String> sortedTerms() throws IOException;
+
+	//posting list of each term in dictionary order, read again on every pass
+	Iterable<DictionaryClass> postingLists() throws IOException;
+
+	//frees what the passes over the posting lists needed
+	default void close() {
+	}
+}
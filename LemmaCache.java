@@ -0,0 +1,59 @@
+//===========================================================================================================================
+//	Program : Class that remembers the lemma of each surface form, bounded with LRU eviction
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class LemmaCache {
+	private final int maxSize;
+	private final LinkedHashMap<String, String> lemmas;
+	private long hits, misses;
+
+	public LemmaCache(final int maxSize) {
+		this.maxSize = maxSize;
+		//access order, so the least recently used surface form is evicted first
+		this.lemmas = new LinkedHashMap<String, String>(1024, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > LemmaCache.this.maxSize;
+			}
+		};
+	}
+
+	//lemma of the word, null when it has to be annotated
+	public synchronized String get(String word) {
+		String lemma = lemmas.get(word);
+		if (lemma == null)
+			misses++;
+		else
+			hits++;
+		return lemma;
+	}
+
+	public synchronized void put(String word, String lemma) {
+		lemmas.put(word, lemma);
+	}
+
+	public synchronized int size() {
+		return lemmas.size();
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	@Override
+	public synchronized String toString() {
+		long lookups = hits + misses;
+		return "hits " + hits + ", misses " + misses + ", hit rate " + (lookups == 0 ? 0 : (100 * hits / lookups)) + "%, size " + lemmas.size();
+	}
+}
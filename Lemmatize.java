@@ -6,9 +6,9 @@
 //===========================================================================================================================
 import java.io.File;
 import java.io.IOException;
-import java.io.RandomAccessFile;
 import java.util.*;
-import java.util.Map.Entry;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import edu.stanford.nlp.ling.CoreAnnotations.LemmaAnnotation;
 import edu.stanford.nlp.ling.CoreAnnotations.SentencesAnnotation;
@@ -20,90 +20,146 @@ import edu.stanford.nlp.util.CoreMap;
 
 public class Lemmatize {
 	public static StanfordCoreNLP pipeline;
-	public static TreeMap<String, DictionaryClass> info = new TreeMap<>();
+	public static TreeMap<String, DictionaryClass> info = new TreeMap<>(TermDictionary.TERM_ORDER);
 	private static int max_docFreq = Integer.MIN_VALUE;
 	private static int min_docFreq = Integer.MAX_VALUE;
 	private static int docId_maxTf = 0;
 	private static int docId_maxDocLen = 0;
 	
-	//To create lemmas from the tokens 
-	public static void lemmatizer(ArrayList<String> tokenisedWords) throws IOException {
-		StanfordLemmatizer();
-		HashMap<Integer, HashMap<String, Integer>> maxFqMap = new HashMap<>();
-		String[] term;
-		int docId = 0, docLen = 0, index = 0;
-		Integer maxTf = 0;
-		int termFrequency = 1, docFrequency = 1;
-		DictionaryClass dcNew;
-		String stemToken = "";
-		ArrayList<String> arrayList = new ArrayList<>();
-		HashMap<String, Integer> h = null ;
-		Timer timeV1UnCompress = new Timer();
-		Timer timeV1Compress = new Timer();
-		while (index < tokenisedWords.size()) { 
-			termFrequency = 1;
-			docFrequency = 1;
-			term = tokenisedWords.get(index++).split(" ");
-			docId = Integer.parseInt(term[1]);
-			docLen = Integer.parseInt(term[2]);
-			stemToken = lemmatize(term[0]);
-			arrayList.add(stemToken + " " + docId + " " + docLen);
-			if (!maxFqMap.containsKey(docId)){
-				h = new HashMap<>();
-				h.put(stemToken, 1);
-				maxFqMap.put(docId, h);
-			} else {
-				h = maxFqMap.get(docId);
-				if(!h.containsKey(stemToken)) {
-					h.put(stemToken, 1);
-				} else {
-					h.put(stemToken,h.get(stemToken) + 1);
-				}
-			}
+	private static final int LEMMA_CACHE_SIZE = 100000;
+	private static LemmaCache lemmaCache;
+	//pipelines are not shared between threads, each document borrows one
+	private static BlockingQueue<StanfordCoreNLP> pipelines;
+	private static Inverter inverter;
+	//posting lists in dictionary order, from info or merged from the runs of an external inversion
+	private static Iterable<DictionaryClass> postingLists;
+	//wall time of the in memory index from the first document, and of the compressed index alone
+	private static Metrics.Span timeV1UnCompress, timeV1Compress;
+	//codec of the docId gaps and tfs in Index_Version1.compressed, set from the command line
+	public static PostingCodec postingCodec = new GammaCodec();
+
+	//To set up the lemmatizers and the inverter before the first document
+	//external inversion keeps only the dictionary of terms and one block of postings in memory
+	public static void startIndex(long memoryBudget, int pipelineCount, boolean external, boolean positions) {
+		startPipelines(pipelineCount);
+		inverter = external ? new BsbiInverter("lemma", memoryBudget) : new SpimiInverter("lemma", memoryBudget, positions);
+		//started by the thread that inverts the first document, the span has to end on the thread it began on
+		timeV1UnCompress = null;
+	}
+
+	//To set up one lemmatizer per thread that lemmatizes documents, and the cache they share
+	public static void startPipelines(int pipelineCount) {
+		pipelines = new ArrayBlockingQueue<>(pipelineCount);
+		for (int i = 0; i < pipelineCount; i++) {
+			StanfordLemmatizer();
+			pipelines.add(pipeline);
 		}
-		
-		DocDetails docDet;
-		int i = 0;
-		while (arrayList.size() > i) {
-			term = arrayList.get(i++).split(" ");
-			stemToken = term[0]; docId = Integer.parseInt(term[1]); docLen = Integer.parseInt(term[2]);
-			
-			for(Entry<String, Integer> item : Tokenize.sortByValue(maxFqMap.get(docId)).entrySet()) {
-				maxTf = item.getValue();
-				break;
-			}
-			
-			if (!info.containsKey(stemToken))
-				info.put(stemToken, new DictionaryClass(stemToken, docId, docLen, maxTf, termFrequency, docFrequency));
-			else {
-				dcNew = info.get(stemToken);
-				TreeMap<Integer, DocDetails> postingListObj = dcNew.getPostingList(); 
-				if (postingListObj.containsKey(docId)) {
-					docDet = postingListObj.get(docId);
-					docDet.setTermFrequency(docDet.getTermFrequency() + 1);
-					postingListObj.put(docId, docDet);
-					dcNew.setPostingList(postingListObj);
-					info.put(stemToken, dcNew);
-				} else {
-					postingListObj.put(docId, new DocDetails(docLen, maxTf, termFrequency));
-					dcNew.setPostingList(postingListObj);
-					dcNew.setDocFrequency(dcNew.getDocFrequency() + 1);
-					info.put(stemToken, dcNew);
-				}
-			}
+		lemmaCache = new LemmaCache(LEMMA_CACHE_SIZE);
+	}
+
+	//To create lemmas from the tokens of one document, safe to call from several threads
+	//Words missing from the cache are annotated together in one call, one word per line
+	public static void lemmatizeDocument(List<String> tokens, List<String> lemmas) {
+		lemmas.clear();
+		LinkedHashMap<String, String> unseen = new LinkedHashMap<>();
+		for (String token : tokens) {
+			String lemma = lemmaCache.get(token);
+			if (lemma == null)
+				unseen.put(token, null);
+			lemmas.add(lemma);
+		}
+		if (unseen.isEmpty())
+			return;
+		StanfordCoreNLP nlp = borrowPipeline();
+		try {
+			lemmatizeBatch(nlp, unseen);
+		} finally {
+			pipelines.add(nlp);
+		}
+		for (int i = 0; i < lemmas.size(); i++) {
+			if (lemmas.get(i) == null)
+				lemmas.set(i, unseen.get(tokens.get(i)));
+		}
+		for (Map.Entry<String, String> entry : unseen.entrySet())
+			lemmaCache.put(entry.getKey(), entry.getValue());
+	}
+
+	private static StanfordCoreNLP borrowPipeline() {
+		try {
+			return pipelines.take();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("Interrupted while waiting for a lemmatizer", e);
+		}
+	}
+
+	//every line is its own sentence, so each word gets the same lemma as when it is annotated alone
+	private static void lemmatizeBatch(StanfordCoreNLP nlp, Map<String, String> words) {
+		StringBuilder text = new StringBuilder();
+		for (String word : words.keySet())
+			text.append(word).append('\n');
+		Annotation document = new Annotation(text.toString());
+		nlp.annotate(document);
+		List<CoreMap> sentences = document.get(SentencesAnnotation.class);
+		if (sentences.size() == words.size()) {
+			Iterator<CoreMap> sentence = sentences.iterator();
+			for (Map.Entry<String, String> entry : words.entrySet())
+				entry.setValue(sentence.next().get(TokensAnnotation.class).get(0).get(LemmaAnnotation.class));
+		} else {
+			//the sentences do not line up with the words, so they are annotated one at a time
+			for (Map.Entry<String, String> entry : words.entrySet())
+				entry.setValue(lemmatize(nlp, entry.getKey()));
 		}
+	}
+
+	//To add the lemmas of one document to the index, documents come in docId order
+	public static void invertDocument(int docId, int docLen, List<String> lemmas) throws IOException {
+		if (timeV1UnCompress == null)
+			timeV1UnCompress = Metrics.start("v1_uncompressed");
+		Metrics.Span inverting = Metrics.start(Metrics.INVERT);
+		inverter.startDocument(docId, docLen);
+		for (String lemma : lemmas) {
+			inverter.addToken(inverter.termId(lemma));
+		}
+		inverter.endDocument();
+		inverting.end();
+	}
+
+	//To build the dictionary and write the indexes once all documents are inverted
+	public static void buildIndex() throws IOException {
+		if (timeV1UnCompress == null)
+			timeV1UnCompress = Metrics.start("v1_uncompressed");
+		Metrics.Span inverting = Metrics.start(Metrics.INVERT);
+		//the dictionary is only kept as a map when no run was spilled, otherwise every pass merges the runs from disk
+		if (inverter instanceof SpimiInverter && ((SpimiInverter) inverter).getRunCount() == 0)
+			info = ((SpimiInverter) inverter).finish();
+		List<String> terms = inverter.sortedTerms();
+		postingLists = inverter.postingLists();
+		inverting.end();
 		System.out.println("\nTime taken to buid Index v1 uncompressed :: " +timeV1UnCompress.end());
+		System.out.println("Lemma cache :: " + lemmaCache);
+		timeV1Compress = Metrics.start("v1_compressed");
 		//only blocking compression is done, so FALSE is sent
-		Compression.blockingCompression(info, false);
+		TermDictionary dictionary = Compression.blockingCompression(terms, false);
 		//To write the byte values after compression into binary file
-		compressionOfLemma(info);
+		compressionOfLemma(postingLists, terms.size(), dictionary);
 		System.out.println("\nTime taken to buid Index v1 compressed :: " + timeV1Compress.end());
 		//To write the uncompressed dictionary and inverted list as bytes into a file
-		lemmaCountInformation(info);
+		lemmaCountInformation(postingLists);
 	}
 	
 	//nlp lemmatizer from the jar, set up for API
 	public static String lemmatize(String documentText)
+    {
+        StanfordCoreNLP nlp = borrowPipeline();
+        try {
+            return lemmatize(nlp, documentText);
+        } finally {
+            pipelines.add(nlp);
+        }
+    }
+
+	private static String lemmatize(StanfordCoreNLP pipeline, String documentText)
     {
         List<String> lemmas = new LinkedList<String>();
         // Create an empty Annotation just with the given text
@@ -127,90 +183,57 @@ public class Lemmatize {
         Properties props;
         props = new Properties();
         props.put("annotators", "tokenize, ssplit, pos, lemma");
+        //sentences end only at line breaks, so a batch of words one per line is a batch of one word sentences
+        props.put("ssplit.eolonly", "true");
         pipeline = new StanfordCoreNLP(props);
     }
 	
 	//To write uncompressed information as bytes in binary file
-	private static void lemmaCountInformation(TreeMap<String, DictionaryClass> info) throws IOException {
+	private static void lemmaCountInformation(Iterable<DictionaryClass> postingLists) throws IOException {
 		File file = new File("Index_Version1.uncompressed");
-		RandomAccessFile newTextFile = new RandomAccessFile("Index_Version1.uncompressed", "rw");
-		int maxDocLen = Integer.MIN_VALUE, maxDocTf = Integer.MIN_VALUE;
-		for (String termStoken : info.keySet()) {
-			DictionaryClass dictionary = info.get(termStoken);
-			max_docFreq = Math.max(dictionary.getDocFrequency(), max_docFreq);
-			min_docFreq = Math.min(dictionary.getDocFrequency(), min_docFreq);
-			newTextFile.writeBytes(dictionary.getTerm() + "," + dictionary.getDocFrequency() +"->");
-			Set<Integer> post = dictionary.getPostingList().keySet();
-			int count = 0;
-			for (Integer docId : post) {
-				count++;
-				DocDetails d  = dictionary.getPostingList().get(docId);
-				newTextFile.writeBytes(docId +","+d.getMaxTf() +","+d.getTermFrequency() +","+ d.getDocLen() + "->");
-				if (count < post.size()) {
-					newTextFile.writeBytes("->");
-				}
-				//For finding doc with max length
-				if (d.getDocLen() > maxDocLen) {
-					maxDocLen = d.getDocLen();
-					docId_maxDocLen = docId;
-				}
-				//For finding doc with max tf
-				if (d.getMaxTf() >  maxDocTf) {
-					maxDocTf = d.getMaxTf();
-					docId_maxTf = docId; 
-				}
+		Metrics.Span writing = Metrics.start(Metrics.WRITE);
+		try (IndexWriter newTextFile = new IndexWriter(file)) {
+			//docLen and max tf are written once per document, ahead of the dictionary
+			DocumentStatistics documents = inverter.getDocumentStatistics();
+			for (int docId = 1; docId <= documents.getMaxDocId(); docId++) {
+				if (documents.contains(docId))
+					newTextFile.writeBytes(docId + "," + documents.getMaxTf(docId) + "," + documents.getDocLen(docId) + System.getProperty("line.separator"));
 			}
 			newTextFile.write(System.getProperty("line.separator").getBytes());
+			docId_maxDocLen = documents.docIdWithMaxDocLen();
+			docId_maxTf = documents.docIdWithMaxTf();
+			for (DictionaryClass dictionary : postingLists) {
+				max_docFreq = Math.max(dictionary.getDocFrequency(), max_docFreq);
+				min_docFreq = Math.min(dictionary.getDocFrequency(), min_docFreq);
+				newTextFile.writeBytes(dictionary.getTerm() + "," + dictionary.getDocFrequency() +"->");
+				PostingList post = dictionary.getPostingList();
+				int count = 0;
+				for (int p = 0; p < post.size(); p++) {
+					count++;
+					newTextFile.writeBytes(post.getDocId(p) +","+post.getTf(p) + "->");
+					if (count < post.size()) {
+						newTextFile.writeBytes("->");
+					}
+				}
+				newTextFile.write(System.getProperty("line.separator").getBytes());
+			}
+			newTextFile.commit();
 		}
-		newTextFile.close();
+		writing.end();
+		Metrics.count(Metrics.UNCOMPRESSED_BYTES, file.length());
 		double bytes = file.length();
 		double kilobytes = (bytes / 1024);
 		System.out.println("Size of V1 uncompressed :: " + kilobytes + " KB");
 	}
 	
 	//To write in random access file after byte conversion
-	private static void compressionOfLemma(TreeMap<String, DictionaryClass> info) throws IOException {
+	private static void compressionOfLemma(Iterable<DictionaryClass> postingLists, int termCount, TermDictionary dictionary) throws IOException {
 		File file = new File("Index_Version1.compressed");
-		RandomAccessFile newFile = new RandomAccessFile("Index_Version1.compressed", "rw");
-		int i = 0, j = 0;
-		byte[] termPtr = null;
-		byte[] dcFreq, dcId,  max_tf, termFreq, docLen;
-		int docFreq = 0;
-		//the long string after blocking compression
-		for (String longString : Compression.longDictionaryTerms)
-			newFile.writeBytes(longString);
-		newFile.write(System.getProperty("line.separator").getBytes());
-		for (String termStoken : info.keySet()) {
-			DictionaryClass dictionary = info.get(termStoken);
-			docFreq = dictionary.getDocFrequency();
-			dcFreq = Compression.convertToByteArray(Compression.deltaCompression(docFreq));
-			newFile.write(dcFreq);
-			newFile.writeBytes("|");
-			Set<Integer> post = dictionary.getPostingList().keySet();
-			for (Integer docId : post) {
-				DocDetails d  = dictionary.getPostingList().get(docId);
-				dcId = Compression.convertToByteArray(Compression.deltaCompression(docId));
-				max_tf = Compression.convertToByteArray(Compression.deltaCompression(d.getMaxTf()));
-				termFreq = Compression.convertToByteArray(Compression.deltaCompression(d.getTermFrequency()));
-				docLen = Compression.convertToByteArray(Compression.deltaCompression(d.getDocLen()));
-				newFile.write(dcId); newFile.writeBytes(",");
-				newFile.write(docLen);newFile.writeBytes(",");
-				newFile.write(max_tf);newFile.writeBytes(",");
-				newFile.write(termFreq);
-			}
-			newFile.writeBytes("|");
-			if (i % 8 == 0)
-				termPtr = Compression.convertToByteArray(String.valueOf(Compression.termPtr.get(j++)));
-			else
-				termPtr = null;
-			if (termPtr != null) {
-				newFile.writeBytes("|");
-				newFile.write(termPtr);
-			}
-			newFile.write(System.getProperty("line.separator").getBytes());
-			i++;
+		try (IndexWriter newFile = new IndexWriter(file)) {
+			//blocked dictionary and gamma codes
+			Compression.writeCompressedIndex(newFile, postingLists, termCount, inverter.getDocumentStatistics(), dictionary, false, postingCodec);
+			newFile.commit();
 		}
-		newFile.close();
 		double bytes = file.length();
 		double kilobytes = (bytes / 1024);
 		System.out.println("Size of V1 compressed :: " + kilobytes + " KB");
@@ -221,15 +244,15 @@ public class Lemmatize {
 		StringBuilder maxFreqWords = new StringBuilder();
 		StringBuilder minFreqWords = new StringBuilder();
 		int docFreq = 0;
-		for (String token : info.keySet()) {
-			DictionaryClass dictionary = info.get(token);
+		for (DictionaryClass dictionary : postingLists) {
 			docFreq = dictionary.getDocFrequency();
 			if (docFreq == max_docFreq) {
-				maxFreqWords.append(token + " ");
+				maxFreqWords.append(dictionary.getTerm() + " ");
 			} else if (docFreq == min_docFreq) {
-				minFreqWords.append(token + " ");
+				minFreqWords.append(dictionary.getTerm() + " ");
 			}
 		}
+		inverter.close();
 		System.out.println("\nTerm from index 1 with the largest df :: " + maxFreqWords);
 		System.out.println("Term from index 1 with the smallest df :: " + minFreqWords);
 		System.out.println("The document with the largest max_tf in collection :: " + docId_maxTf);
@@ -0,0 +1,61 @@
+//===========================================================================================================================
+//	Program : Class that answers the queries of one shard from its directory, with the statistics of the whole collection
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.util.List;
+
+public class LocalShard implements Shard {
+	private File directory;
+	//indexed by version - 1
+	private IndexReader[] readers = new IndexReader[2];
+	private CollectionStatistics[] statistics = new CollectionStatistics[2];
+
+	public LocalShard(File directory) throws IOException {
+		this.directory = directory;
+		for (int version = VERSION_LEMMA; version <= VERSION_STEM; version++) {
+			readers[version - 1] = new IndexReader(indexFile(directory, version).getPath());
+			try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(statisticsFile(directory, version))))) {
+				statistics[version - 1] = CollectionStatistics.read(in);
+			}
+		}
+	}
+
+	public static File indexFile(File directory, int version) {
+		return new File(directory, "Index_Version" + version + ".compressed");
+	}
+
+	//document count, total docLen and dfs of all the shards, written when the shards are built
+	public static File statisticsFile(File directory, int version) {
+		return new File(directory, "Statistics_Version" + version);
+	}
+
+	public IndexReader getReader(int version) {
+		return readers[version - 1];
+	}
+
+	@Override
+	public List<Ranker.Hit> topK(int version, List<String> terms, int k, boolean bm25) {
+		return Ranker.topK(getReader(version), terms, k, bm25, statistics[version - 1]);
+	}
+
+	@Override
+	public int[] search(int version, String query) {
+		return BooleanQuery.search(getReader(version), query);
+	}
+
+	@Override
+	public void close() {
+		for (IndexReader reader : readers) {
+			if (reader != null)
+				reader.close();
+		}
+	}
+
+	@Override
+	public String toString() {
+		return directory.getPath();
+	}
+}
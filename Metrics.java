@@ -0,0 +1,233 @@
+//===========================================================================================================================
+//	Program : Class that collects the time, allocations and counts of the indexing stages and writes them as JSON
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.Category;
+import jdk.jfr.DataAmount;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+public class Metrics {
+	//stages of building an index, in the order a document goes through them
+	public static final String READ = "read";
+	public static final String TOKENIZE = "tokenize";
+	public static final String NORMALIZE = "normalize";
+	public static final String INVERT = "invert";
+	public static final String DICTIONARY = "dictionary";
+	public static final String ENCODE = "encode";
+	public static final String WRITE = "write";
+
+	public static final String TOKENS = "tokens";
+	public static final String DOCUMENTS = "documents";
+	public static final String POSTINGS = "postings";
+	public static final String COMPRESSED_BYTES = "compressed_bytes";
+	public static final String UNCOMPRESSED_BYTES = "uncompressed_bytes";
+
+	//nanoseconds per call and sampled values are kept in power of two buckets
+	private static final int BUCKETS = 64;
+	private static final com.sun.management.ThreadMXBean THREADS = threadBean();
+	private static final ConcurrentHashMap<String, Stage> stages = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, LongAdder> counters = new ConcurrentHashMap<>();
+	private static final ConcurrentHashMap<String, Histogram> samples = new ConcurrentHashMap<>();
+
+	//allocations are counted per thread, where the JVM supports it
+	private static com.sun.management.ThreadMXBean threadBean() {
+		java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+		if (!(bean instanceof com.sun.management.ThreadMXBean))
+			return null;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) bean;
+		if (!threads.isThreadAllocatedMemorySupported())
+			return null;
+		threads.setThreadAllocatedMemoryEnabled(true);
+		return threads;
+	}
+
+	private static long allocatedBytes() {
+		return THREADS == null ? 0 : THREADS.getCurrentThreadAllocatedBytes();
+	}
+
+	//Distribution of the values recorded, bucket b holds the values below 2^b
+	private static class Histogram {
+		LongAdder count = new LongAdder();
+		LongAdder sum = new LongAdder();
+		LongAccumulator max = new LongAccumulator(Math::max, 0);
+		AtomicLongArray buckets = new AtomicLongArray(BUCKETS);
+
+		void record(long value) {
+			count.increment();
+			sum.add(value);
+			max.accumulate(value);
+			buckets.incrementAndGet(Math.min(BUCKETS - 1, 64 - Long.numberOfLeadingZeros(Math.max(0, value))));
+		}
+
+		long mean() {
+			long n = count.sum();
+			return n == 0 ? 0 : sum.sum() / n;
+		}
+
+		//upper end of the bucket the percentile falls in
+		long percentile(double p) {
+			long rank = (long) Math.ceil(p * count.sum()), seen = 0;
+			for (int b = 0; b < BUCKETS; b++) {
+				seen += buckets.get(b);
+				if (seen >= rank && seen > 0)
+					return Math.min(max.get(), b == 0 ? 0 : (1L << b) - 1);
+			}
+			return max.get();
+		}
+	}
+
+	//Totals of one stage over all its calls and threads
+	private static class Stage {
+		Histogram nanos = new Histogram();
+		LongAdder allocated = new LongAdder();
+
+		void record(long elapsed, long allocatedBytes) {
+			nanos.record(elapsed);
+			allocated.add(allocatedBytes);
+		}
+	}
+
+	//JFR event of one call of a stage, recorded when a flight recording with indexing.Stage enabled is running
+	@Name("indexing.Stage")
+	@Label("Indexing Stage")
+	@Category("Indexing")
+	@StackTrace(false)
+	static class StageEvent extends Event {
+		@Label("Stage")
+		String stage;
+
+		@Label("Allocated")
+		@DataAmount
+		long allocated;
+	}
+
+	//One call of a stage, from start to end on the same thread
+	public static class Span {
+		private Stage stage;
+		private StageEvent event;
+		private long start, startAllocated, elapsed = -1;
+
+		private Span(String name) {
+			stage = stages.computeIfAbsent(name, key -> new Stage());
+			event = new StageEvent();
+			event.stage = name;
+			event.begin();
+			startAllocated = allocatedBytes();
+			start = System.nanoTime();
+		}
+
+		//the span is only recorded the first time, it returns itself to be printed like Timer.end()
+		public Span end() {
+			if (elapsed >= 0)
+				return this;
+			elapsed = System.nanoTime() - start;
+			long allocated = allocatedBytes() - startAllocated;
+			stage.record(elapsed, allocated);
+			event.end();
+			if (event.shouldCommit()) {
+				event.allocated = allocated;
+				event.commit();
+			}
+			return this;
+		}
+
+		public long getNanos() {
+			return elapsed;
+		}
+
+		//same format as Timer, so the times printed by the indexer read as before
+		@Override
+		public String toString() {
+			return "Time: " + Math.max(0, elapsed) / 1000000 + " msec.\n";
+		}
+	}
+
+	public static Span start(String stage) {
+		return new Span(stage);
+	}
+
+	public static void count(String counter, long n) {
+		counters.computeIfAbsent(counter, key -> new LongAdder()).add(n);
+	}
+
+	//one value of something that goes up and down, like the depth of a queue
+	public static void sample(String gauge, long value) {
+		samples.computeIfAbsent(gauge, key -> new Histogram()).record(value);
+	}
+
+	public static long getCount(String counter) {
+		LongAdder adder = counters.get(counter);
+		return adder == null ? 0 : adder.sum();
+	}
+
+	public static long getNanos(String stage) {
+		Stage totals = stages.get(stage);
+		return totals == null ? 0 : totals.nanos.sum.sum();
+	}
+
+	public static void reset() {
+		stages.clear();
+		counters.clear();
+		samples.clear();
+	}
+
+	//{"stages": {name: {calls, total_ns, mean_ns, max_ns, p50_ns, p90_ns, p99_ns, allocated_bytes}}, "counters": {name: n},
+	//"samples": {name: {count, mean, max, p50, p90, p99}}
+	public static String toJson() {
+		StringBuilder json = new StringBuilder("{\n  \"stages\": {");
+		String separator = "\n";
+		for (Map.Entry<String, Stage> entry : new TreeMap<>(stages).entrySet()) {
+			Histogram nanos = entry.getValue().nanos;
+			json.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+					.append("\"calls\": ").append(nanos.count.sum())
+					.append(", \"total_ns\": ").append(nanos.sum.sum())
+					.append(", \"mean_ns\": ").append(nanos.mean())
+					.append(", \"max_ns\": ").append(nanos.max.get())
+					.append(", \"p50_ns\": ").append(nanos.percentile(0.5))
+					.append(", \"p90_ns\": ").append(nanos.percentile(0.9))
+					.append(", \"p99_ns\": ").append(nanos.percentile(0.99))
+					.append(", \"allocated_bytes\": ").append(entry.getValue().allocated.sum()).append("}");
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"counters\": {");
+		separator = "\n";
+		for (Map.Entry<String, LongAdder> entry : new TreeMap<>(counters).entrySet()) {
+			json.append(separator).append("    \"").append(entry.getKey()).append("\": ").append(entry.getValue().sum());
+			separator = ",\n";
+		}
+		json.append("\n  },\n  \"samples\": {");
+		separator = "\n";
+		for (Map.Entry<String, Histogram> entry : new TreeMap<>(samples).entrySet()) {
+			Histogram values = entry.getValue();
+			json.append(separator).append("    \"").append(entry.getKey()).append("\": {")
+					.append("\"count\": ").append(values.count.sum())
+					.append(", \"mean\": ").append(values.mean())
+					.append(", \"max\": ").append(values.max.get())
+					.append(", \"p50\": ").append(values.percentile(0.5))
+					.append(", \"p90\": ").append(values.percentile(0.9))
+					.append(", \"p99\": ").append(values.percentile(0.99)).append("}");
+			separator = ",\n";
+		}
+		return json.append("\n  }\n}\n").toString();
+	}
+
+	public static void writeJson(File file) throws IOException {
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(file), StandardCharsets.UTF_8)) {
+			out.write(toJson());
+		}
+	}
+}
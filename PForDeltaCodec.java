@@ -0,0 +1,94 @@
+//===========================================================================================================================
+//	Program : Posting codec that bit packs blocks of 128 values and patches the few that do not fit (PForDelta)
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public class PForDeltaCodec implements PostingCodec {
+	public static final int BLOCK_SIZE = BitPacking.BLOCK_SIZE;
+
+	@Override
+	public int getId() {
+		return PFOR_DELTA;
+	}
+
+	@Override
+	public String getName() {
+		return "pfordelta";
+	}
+
+	@Override
+	public int getBlockSize() {
+		return BLOCK_SIZE;
+	}
+
+	@Override
+	public boolean isByteAligned() {
+		return true;
+	}
+
+	//value - 1 of the block being written
+	private final int[] low = new int[BLOCK_SIZE];
+
+	//A block is the bit width b and the exception count, the low b bits of value - 1 for every value,
+	//then the position and the rest of the bits of each exception
+	@Override
+	public void encode(int[] values, int count, BitOutputStream out) {
+		for (int start = 0; start < count; start += BLOCK_SIZE)
+			encodeBlock(values, start, Math.min(BLOCK_SIZE, count - start), out);
+	}
+
+	private void encodeBlock(int[] values, int start, int n, BitOutputStream out) {
+		//values per bit width, to pick the width with the fewest bytes
+		int[] widthCounts = new int[33];
+		for (int i = 0; i < n; i++) {
+			low[i] = values[start + i] - 1;
+			widthCounts[32 - Integer.numberOfLeadingZeros(low[i])]++;
+		}
+		int bestWidth = 32;
+		long bestBits = Long.MAX_VALUE;
+		int exceptions = 0;
+		for (int width = 32; width >= 0; width--) {
+			//an exception costs its position byte and about one more byte per 7 bits left over
+			long bits = (long) n * width + 8L * exceptions * 2;
+			if (exceptions < 256 && bits <= bestBits) {
+				bestBits = bits;
+				bestWidth = width;
+			}
+			exceptions += widthCounts[width];
+		}
+		exceptions = 0;
+		for (int i = 0; i < n; i++) {
+			if ((low[i] >>> bestWidth) != 0)
+				exceptions++;
+		}
+		out.alignToByte();
+		out.writeByte(bestWidth);
+		out.writeByte(exceptions);
+		BitPacking.pack(low, 0, n, bestWidth, out);
+		for (int i = 0; i < n; i++) {
+			int high = low[i] >>> bestWidth;
+			if (high != 0) {
+				out.writeByte(i);
+				VByteCodec.writeVByte(high, out);
+			}
+		}
+	}
+
+	@Override
+	public void decode(BitInputStream in, int[] values, int count) {
+		for (int start = 0; start < count; start += BLOCK_SIZE) {
+			int n = Math.min(BLOCK_SIZE, count - start);
+			in.alignToByte();
+			int width = in.readByte();
+			int exceptions = in.readByte();
+			BitPacking.unpack(in, values, start, n, width);
+			for (int e = 0; e < exceptions; e++) {
+				int i = in.readByte();
+				values[start + i] |= VByteCodec.readVByte(in) << width;
+			}
+			for (int i = 0; i < n; i++)
+				values[start + i]++;
+		}
+	}
+}
@@ -0,0 +1,50 @@
+//===========================================================================================================================
+//	Program : Interface for the integer codes a chunk of docId gaps or term frequencies is written with
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public interface PostingCodec {
+	//ids recorded in the index header, gamma and delta keep the values the deltaCodes flag had
+	int GAMMA = 0;
+	int DELTA = 1;
+	int VBYTE = 2;
+	int SIMPLE8B = 3;
+	int PFOR_DELTA = 4;
+	int ELIAS_FANO = 5;
+
+	int getId();
+
+	String getName();
+
+	//postings are written in chunks of this many for block codecs, 0 if a chunk can have any size
+	int getBlockSize();
+
+	//byte and word aligned codes start every chunk at a byte boundary
+	boolean isByteAligned();
+
+	//writes count values, each at least 1
+	void encode(int[] values, int count, BitOutputStream out);
+
+	void decode(BitInputStream in, int[] values, int count);
+
+	static PostingCodec[] all() {
+		return new PostingCodec[] {new GammaCodec(), new DeltaCodec(), new VByteCodec(), new Simple8bCodec(), new PForDeltaCodec(), new EliasFanoCodec()};
+	}
+
+	static PostingCodec forId(int id) {
+		for (PostingCodec codec : all()) {
+			if (codec.getId() == id)
+				return codec;
+		}
+		throw new IllegalArgumentException("unknown posting codec id " + id);
+	}
+
+	static PostingCodec forName(String name) {
+		for (PostingCodec codec : all()) {
+			if (codec.getName().equalsIgnoreCase(name))
+				return codec;
+		}
+		throw new IllegalArgumentException("unknown posting codec " + name);
+	}
+}
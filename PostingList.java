@@ -0,0 +1,148 @@
+//===========================================================================================================================
+//	Program : Class that holds the posting list of a term as parallel docId and tf arrays
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.util.Arrays;
+
+public class PostingList {
+	private int[] docIds;
+	private int[] tfs;
+	private int size;
+	//positions of every posting one after the other, tf of them per posting, null for a list without positions
+	private int[] positions;
+	private int positionCount;
+	//a sealed list is trimmed to its size and can no longer grow
+	private boolean sealed;
+
+	public PostingList() {
+		this(4);
+	}
+
+	public PostingList(int capacity) {
+		docIds = new int[Math.max(1, capacity)];
+		tfs = new int[docIds.length];
+	}
+
+	//takes over the arrays, the first size docIds have to be increasing
+	public PostingList(int[] docIds, int[] tfs, int size) {
+		this.docIds = docIds;
+		this.tfs = tfs;
+		this.size = size;
+	}
+
+	//the same with the positions of the postings, as many as the tfs add up to
+	public PostingList(int[] docIds, int[] tfs, int size, int[] positions) {
+		this(docIds, tfs, size);
+		this.positions = positions;
+		for (int i = 0; i < size; i++)
+			positionCount += tfs[i];
+	}
+
+	//postings are appended in docId order
+	public void add(int docId, int tf) {
+		if (sealed)
+			throw new IllegalStateException("posting list is sealed");
+		if (size > 0 && docId <= docIds[size - 1])
+			throw new IllegalArgumentException("docId " + docId + " after " + docIds[size - 1]);
+		if (size == docIds.length) {
+			docIds = Arrays.copyOf(docIds, size * 2);
+			tfs = Arrays.copyOf(tfs, size * 2);
+		}
+		docIds[size] = docId;
+		tfs[size] = tf;
+		size++;
+	}
+
+	public void addAll(int[] docIds, int[] tfs, int count) {
+		for (int i = 0; i < count; i++)
+			add(docIds[i], tfs[i]);
+	}
+
+	//postings of a later run with their positions, only for a list that has positions
+	public void addAll(int[] docIds, int[] tfs, int count, int[] positions) {
+		int added = 0;
+		for (int i = 0; i < count; i++) {
+			add(docIds[i], tfs[i]);
+			added += tfs[i];
+		}
+		if (positionCount + added > this.positions.length)
+			this.positions = Arrays.copyOf(this.positions, Math.max(positionCount + added, 2 * this.positions.length));
+		System.arraycopy(positions, 0, this.positions, positionCount, added);
+		positionCount += added;
+	}
+
+	//trims the arrays to the size, the list is read only afterwards
+	public PostingList seal() {
+		if (!sealed) {
+			if (docIds.length != size) {
+				docIds = Arrays.copyOf(docIds, size);
+				tfs = Arrays.copyOf(tfs, size);
+			}
+			if (positions != null && positions.length != positionCount)
+				positions = Arrays.copyOf(positions, positionCount);
+			sealed = true;
+		}
+		return this;
+	}
+
+	public boolean isSealed() {
+		return sealed;
+	}
+
+	public int size() {
+		return size;
+	}
+
+	public int getDocId(int index) {
+		return docIds[index];
+	}
+
+	public int getTf(int index) {
+		return tfs[index];
+	}
+
+	public boolean hasPositions() {
+		return positions != null;
+	}
+
+	//positions of all the postings in order, the tf of a posting says how many are its own
+	public int[] getPositions() {
+		return positions;
+	}
+
+	//index of the docId, or a negative value like Arrays.binarySearch if it is not in the list
+	public int indexOf(int docId) {
+		return Arrays.binarySearch(docIds, 0, size, docId);
+	}
+
+	//tf of the docId, 0 if the term is not in the document
+	public int getTermFrequency(int docId) {
+		int index = indexOf(docId);
+		return index < 0 ? 0 : tfs[index];
+	}
+
+	//heap taken by the arrays
+	public long sizeInBytes() {
+		return 32 + 8L * docIds.length + (positions == null ? 0 : 16 + 4L * positions.length);
+	}
+
+	@Override
+	public int hashCode() {
+		int result = 1;
+		for (int i = 0; i < size; i++)
+			result = 31 * (31 * result + docIds[i]) + tfs[i];
+		return result;
+	}
+
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || getClass() != obj.getClass())
+			return false;
+		PostingList other = (PostingList) obj;
+		return Arrays.equals(docIds, 0, size, other.docIds, 0, other.size) && Arrays.equals(tfs, 0, size, other.tfs, 0, other.size);
+	}
+}
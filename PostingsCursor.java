@@ -0,0 +1,238 @@
+//===========================================================================================================================
+//	Program : Class that decodes one compressed posting list lazily, jumping over gaps with the skip pointers
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.nio.ByteBuffer;
+
+public class PostingsCursor implements DocIdIterator {
+	private ByteBuffer buffer;
+	private BitInputStream bits;
+	private boolean deltaCodes;
+	private PostingCodec codec;
+	private int docFrequency, interval;
+	//skip j lands on posting (j + 1) * interval, skipDocIds[j] is the docId just before it
+	private int skipCount;
+	private int[] skipDocIds;
+	private long[] skipOffsets;
+	//bounds of each block of postings between two skips, one block for a list without skips
+	private int[] blockMaxTf, blockMinDocLen, blockMaxNtf;
+	private boolean bounds;
+	private long postingsStart;
+	private int index = -1, docId = -1, tf;
+	//docIds and tfs of the chunk the cursor is in, a chunk is one skip interval
+	private int[] docIds, tfs;
+	//positions of the list, -1 without them, opened the first time they are asked for
+	private int positionsOffset;
+	private BitInputStream positionBits;
+	private long[] positionChunkOffsets;
+	//posting whose positions come next in positionBits
+	private int positionIndex;
+
+	//the posting list written by Compression.writeCompressedIndex at the byte offset
+	public PostingsCursor(ByteBuffer buffer, int byteOffset, boolean deltaCodes, PostingCodec codec) {
+		this(buffer, byteOffset, deltaCodes, codec, -1);
+	}
+
+	//the same with its positions at positionsOffset
+	public PostingsCursor(ByteBuffer buffer, int byteOffset, boolean deltaCodes, PostingCodec codec, int positionsOffset) {
+		this.buffer = buffer;
+		this.positionsOffset = positionsOffset;
+		this.bits = new BitInputStream(buffer, byteOffset);
+		this.deltaCodes = deltaCodes;
+		this.codec = codec;
+		docFrequency = readNumber();
+		interval = Compression.skipInterval(docFrequency, codec);
+		docIds = new int[interval];
+		tfs = new int[interval];
+		skipCount = (docFrequency - 1) / interval;
+		skipDocIds = new int[skipCount];
+		skipOffsets = new long[skipCount];
+		blockMaxTf = new int[skipCount + 1];
+		blockMinDocLen = new int[skipCount + 1];
+		blockMaxNtf = new int[skipCount + 1];
+		bounds = skipCount > 0;
+		if (bounds)
+			readBlockBounds(0);
+		int skipDocId = 0;
+		long skipOffset = 0;
+		for (int j = 0; j < skipCount; j++) {
+			skipDocIds[j] = skipDocId += readNumber();
+			skipOffsets[j] = skipOffset += readNumber();
+			readBlockBounds(j + 1);
+		}
+		//skip offsets are relative to the first posting
+		if (codec.isByteAligned())
+			bits.alignToByte();
+		postingsStart = bits.bitPosition();
+		for (int j = 0; j < skipCount; j++)
+			skipOffsets[j] += postingsStart;
+	}
+
+	public int getDocFrequency() {
+		return docFrequency;
+	}
+
+	public int termFrequency() {
+		return tf;
+	}
+
+	public int getBlockCount() {
+		return skipCount + 1;
+	}
+
+	//docId of the last posting of a block, the last block runs to the end of the list
+	public int getBlockLastDocId(int block) {
+		return block < skipCount ? skipDocIds[block] : NO_MORE_DOCS;
+	}
+
+	public int getBlockMaxTf(int block) {
+		return blockMaxTf[block];
+	}
+
+	public int getBlockMinDocLen(int block) {
+		return blockMinDocLen[block];
+	}
+
+	public int getBlockMaxNtf(int block) {
+		return blockMaxNtf[block];
+	}
+
+	//short lists have no stored bounds, they are decoded once for them and the cursor goes back before the first posting
+	public void scanBounds(DocumentStatistics documents) {
+		if (bounds)
+			return;
+		int maxTf = 1, minDocLen = Integer.MAX_VALUE, maxNtf = 1;
+		rewind();
+		while (nextDoc() != NO_MORE_DOCS) {
+			maxTf = Math.max(maxTf, tf);
+			minDocLen = Math.min(minDocLen, Math.max(1, documents.getDocLen(docId)));
+			maxNtf = Math.max(maxNtf, Compression.ntfLevel(tf, documents.getMaxTf(docId)));
+		}
+		blockMaxTf[0] = maxTf;
+		blockMinDocLen[0] = minDocLen;
+		blockMaxNtf[0] = maxNtf;
+		bounds = true;
+		rewind();
+	}
+
+	private void rewind() {
+		index = -1;
+		docId = -1;
+		bits.seek(postingsStart);
+	}
+
+	@Override
+	public int docId() {
+		return docId;
+	}
+
+	@Override
+	public int cost() {
+		return docFrequency;
+	}
+
+	@Override
+	public int nextDoc() {
+		if (++index >= docFrequency) {
+			index = docFrequency;
+			return docId = NO_MORE_DOCS;
+		}
+		int pos = index % interval;
+		if (pos == 0) {
+			int count = Math.min(interval, docFrequency - index);
+			codec.decode(bits, docIds, count);
+			codec.decode(bits, tfs, count);
+			//docIds are gaps from the one before, the first one from 0
+			BitPacking.prefixSum(docIds, 0, count, index == 0 ? 0 : docId);
+		}
+		docId = docIds[pos];
+		tf = tfs[pos];
+		return docId;
+	}
+
+	@Override
+	public int advance(int target) {
+		if (target <= docId)
+			return docId;
+		//first skip that lies ahead of the current posting
+		int first = (index + 1) / interval;
+		if (first < skipCount && skipDocIds[first] < target) {
+			//galloping search for the last skip before the target
+			int low = first, step = 1;
+			while (low + step < skipCount && skipDocIds[low + step] < target) {
+				low += step;
+				step <<= 1;
+			}
+			int high = Math.min(low + step, skipCount) - 1;
+			while (low < high) {
+				int mid = (low + high + 1) >>> 1;
+				if (skipDocIds[mid] < target)
+					low = mid;
+				else
+					high = mid - 1;
+			}
+			bits.seek(skipOffsets[low]);
+			index = (low + 1) * interval - 1;
+			docId = skipDocIds[low];
+		}
+		//at most one chunk of postings is decoded after the jump
+		while (nextDoc() < target)
+			;
+		return docId;
+	}
+
+	public boolean hasPositions() {
+		return positionsOffset >= 0;
+	}
+
+	//Positions of the current posting, tf of them, written into the array that is returned or a larger one
+	//only the positions of the chunk the cursor is in are decoded, from its start up to this posting
+	public int[] positions(int[] into) {
+		if (positionsOffset < 0)
+			throw new IllegalStateException("the index has no positions");
+		if (positionBits == null) {
+			positionBits = new BitInputStream(buffer, positionsOffset);
+			positionChunkOffsets = new long[skipCount + 1];
+			long offset = 0;
+			for (int j = 1; j <= skipCount; j++)
+				positionChunkOffsets[j] = offset += readPosition();
+			long start = positionBits.bitPosition();
+			for (int j = 0; j <= skipCount; j++)
+				positionChunkOffsets[j] += start;
+			positionIndex = 0;
+		}
+		int chunk = index / interval;
+		if (positionIndex > index || positionIndex / interval != chunk) {
+			positionBits.seek(positionChunkOffsets[chunk]);
+			positionIndex = chunk * interval;
+		}
+		//the tfs of the postings before this one in the chunk say how many positions to pass
+		for (; positionIndex < index; positionIndex++) {
+			for (int i = tfs[positionIndex % interval]; i > 0; i--)
+				readPosition();
+		}
+		if (into.length < tf)
+			into = new int[Math.max(tf, 2 * into.length)];
+		int position = -1;
+		for (int i = 0; i < tf; i++)
+			into[i] = position += readPosition();
+		positionIndex++;
+		return into;
+	}
+
+	private int readPosition() {
+		return deltaCodes ? positionBits.readDelta() : positionBits.readGamma();
+	}
+
+	private void readBlockBounds(int block) {
+		blockMaxTf[block] = readNumber();
+		blockMinDocLen[block] = readNumber();
+		blockMaxNtf[block] = readNumber();
+	}
+
+	private int readNumber() {
+		return deltaCodes ? bits.readDelta() : bits.readGamma();
+	}
+}
@@ -0,0 +1,294 @@
+//===========================================================================================================================
+//	Program : Class that ranks documents for a free text query with max tf tf-idf or BM25, keeping only the top k
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.IOException;
+import java.util.*;
+
+public class Ranker {
+	public static final double BM25_K1 = 1.2;
+	public static final double BM25_B = 0.75;
+	//smoothing of max tf normalization, ntf = a + (1 - a) tf / maxTf
+	public static final double NTF_SMOOTHING = 0.4;
+
+	//Weight of one query term in a document, with an upper bound computed from the bounds of a block of postings
+	public interface Scorer {
+		double score(int docId, int tf);
+
+		double bound(int maxTf, int minDocLen, int maxNtfLevel);
+	}
+
+	//(a + (1 - a) tf / maxTf) * log(N / df)
+	public static class MaxTfIdf implements Scorer {
+		private DocumentStatistics documents;
+		private double idf;
+
+		public MaxTfIdf(DocumentStatistics documents, int documentCount, int docFrequency) {
+			this.documents = documents;
+			this.idf = Math.log((double) documentCount / docFrequency);
+		}
+
+		@Override
+		public double score(int docId, int tf) {
+			return (NTF_SMOOTHING + (1 - NTF_SMOOTHING) * tf / documents.getMaxTf(docId)) * idf;
+		}
+
+		@Override
+		public double bound(int maxTf, int minDocLen, int maxNtfLevel) {
+			return (NTF_SMOOTHING + (1 - NTF_SMOOTHING) * maxNtfLevel / Compression.NTF_LEVELS) * idf;
+		}
+	}
+
+	//idf * tf (k1 + 1) / (tf + k1 (1 - b + b docLen / avgDocLen)), growing with tf and falling with docLen
+	public static class Bm25 implements Scorer {
+		private DocumentStatistics documents;
+		private double idf, avgDocLen;
+
+		public Bm25(DocumentStatistics documents, int documentCount, int docFrequency, double avgDocLen) {
+			this.documents = documents;
+			int n = documentCount;
+			this.idf = Math.log(1 + (n - docFrequency + 0.5) / (docFrequency + 0.5));
+			this.avgDocLen = avgDocLen;
+		}
+
+		@Override
+		public double score(int docId, int tf) {
+			return weight(tf, documents.getDocLen(docId));
+		}
+
+		@Override
+		public double bound(int maxTf, int minDocLen, int maxNtfLevel) {
+			return weight(maxTf, minDocLen);
+		}
+
+		private double weight(int tf, int docLen) {
+			return idf * tf * (BM25_K1 + 1) / (tf + BM25_K1 * (1 - BM25_B + BM25_B * docLen / avgDocLen));
+		}
+	}
+
+	public static class Hit {
+		public final int docId;
+		public final double score;
+
+		Hit(int docId, double score) {
+			this.docId = docId;
+			this.score = score;
+		}
+
+		@Override
+		public String toString() {
+			return docId + ":" + String.format("%.4f", score);
+		}
+	}
+
+	//lower score ranks lower, on equal scores the larger docId does
+	private static final Comparator<Hit> WORST_FIRST = new Comparator<Hit>() {
+		@Override
+		public int compare(Hit o1, Hit o2) {
+			int cmp = Double.compare(o1.score, o2.score);
+			return cmp != 0 ? cmp : Integer.compare(o2.docId, o1.docId);
+		}
+	};
+
+	//One query term, its cursor with the score bound of the whole list and of each block
+	private static class TermList {
+		PostingsCursor cursor;
+		Scorer scorer;
+		double bound;
+		double[] blockBounds;
+		//candidates only move forward, so the block of the last one is where the next search starts
+		int block;
+
+		TermList(PostingsCursor cursor, Scorer scorer, DocumentStatistics documents) {
+			this.cursor = cursor;
+			this.scorer = scorer;
+			cursor.scanBounds(documents);
+			blockBounds = new double[cursor.getBlockCount()];
+			for (int block = 0; block < blockBounds.length; block++) {
+				blockBounds[block] = scorer.bound(cursor.getBlockMaxTf(block), cursor.getBlockMinDocLen(block), cursor.getBlockMaxNtf(block));
+				bound = Math.max(bound, blockBounds[block]);
+			}
+		}
+
+		double blockBound(int docId) {
+			while (block < blockBounds.length - 1 && cursor.getBlockLastDocId(block) < docId)
+				block++;
+			return blockBounds[block];
+		}
+	}
+
+	//the idf and average docLen come from the statistics, which can cover more than this index
+	private static List<TermList> open(IndexReader reader, Collection<String> terms, boolean bm25, CollectionStatistics statistics) {
+		DocumentStatistics documents = reader.getDocumentStatistics();
+		int documentCount = statistics.getDocumentCount();
+		double avgDocLen = statistics.getAverageDocLen();
+		List<TermList> lists = new ArrayList<>();
+		for (String term : new LinkedHashSet<>(terms)) {
+			int termIndex = reader.lookup(term.toLowerCase());
+			if (termIndex < 0)
+				continue;
+			PostingsCursor cursor = reader.openPostings(termIndex);
+			int docFrequency = statistics.getDocFrequency(term);
+			Scorer scorer = bm25 ? new Bm25(documents, documentCount, docFrequency, avgDocLen) : new MaxTfIdf(documents, documentCount, docFrequency);
+			lists.add(new TermList(cursor, scorer, documents));
+		}
+		return lists;
+	}
+
+	//Top k documents by block-max MaxScore
+	//lists are ordered by bound, the ones whose bounds add up to no more than the k-th score cannot
+	//make a document enter the top k alone, so only the others give candidates, the rest are probed
+	//with advance when the block bounds at the candidate still leave room
+	public static List<Hit> topK(IndexReader reader, Collection<String> terms, int k, boolean bm25) {
+		return topK(reader, terms, k, bm25, CollectionStatistics.of(reader, terms));
+	}
+
+	//top k of one part of a collection, scored with the statistics of the whole collection
+	public static List<Hit> topK(IndexReader reader, Collection<String> terms, int k, boolean bm25, CollectionStatistics statistics) {
+		List<TermList> lists = open(reader, terms, bm25, statistics);
+		lists.sort(new Comparator<TermList>() {
+			@Override
+			public int compare(TermList o1, TermList o2) {
+				return Double.compare(o1.bound, o2.bound);
+			}
+		});
+		int n = lists.size();
+		TermList[] sorted = lists.toArray(new TermList[0]);
+		//prefixBound[i] is the sum of the bounds of lists 0 to i
+		double[] prefixBound = new double[n];
+		for (int i = 0; i < n; i++) {
+			prefixBound[i] = (i > 0 ? prefixBound[i - 1] : 0) + sorted[i].bound;
+			sorted[i].cursor.nextDoc();
+		}
+		PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+		double[] blockBound = new double[n];
+		int firstEssential = 0;
+		double threshold = -1;
+		while (k > 0) {
+			while (firstEssential < n && prefixBound[firstEssential] <= threshold)
+				firstEssential++;
+			if (firstEssential == n)
+				break;
+			int docId = DocIdIterator.NO_MORE_DOCS;
+			for (int i = firstEssential; i < n; i++)
+				docId = Math.min(docId, sorted[i].cursor.docId());
+			if (docId == DocIdIterator.NO_MORE_DOCS)
+				break;
+			double score = 0;
+			for (int i = firstEssential; i < n; i++) {
+				PostingsCursor cursor = sorted[i].cursor;
+				if (cursor.docId() == docId) {
+					score += sorted[i].scorer.score(docId, cursor.termFrequency());
+					cursor.nextDoc();
+				}
+			}
+			if (firstEssential > 0) {
+				//block bounds of the non essential lists at this docId, added up from the lowest
+				for (int i = 0; i < firstEssential; i++)
+					blockBound[i] = (i > 0 ? blockBound[i - 1] : 0) + sorted[i].blockBound(docId);
+				for (int i = firstEssential - 1; i >= 0 && score > threshold - blockBound[i]; i--) {
+					PostingsCursor cursor = sorted[i].cursor;
+					if (cursor.advance(docId) == docId)
+						score += sorted[i].scorer.score(docId, cursor.termFrequency());
+				}
+			}
+			if (heap.size() < k) {
+				heap.add(new Hit(docId, score));
+				if (heap.size() == k)
+					threshold = heap.peek().score;
+			} else if (score > threshold) {
+				heap.poll();
+				heap.add(new Hit(docId, score));
+				threshold = heap.peek().score;
+			}
+		}
+		return ranked(heap);
+	}
+
+	//Scores every document of every list, to check topK against and to time it
+	public static List<Hit> exhaustive(IndexReader reader, Collection<String> terms, int k, boolean bm25) {
+		DocumentStatistics documents = reader.getDocumentStatistics();
+		double[] scores = new double[documents.getMaxDocId() + 1];
+		boolean[] matched = new boolean[scores.length];
+		for (TermList list : open(reader, terms, bm25, CollectionStatistics.of(reader, terms))) {
+			PostingsCursor cursor = list.cursor;
+			for (int docId = cursor.nextDoc(); docId != DocIdIterator.NO_MORE_DOCS; docId = cursor.nextDoc()) {
+				scores[docId] += list.scorer.score(docId, cursor.termFrequency());
+				matched[docId] = true;
+			}
+		}
+		PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+		for (int docId = 0; docId < scores.length && k > 0; docId++) {
+			if (!matched[docId])
+				continue;
+			Hit hit = new Hit(docId, scores[docId]);
+			if (heap.size() < k) {
+				heap.add(hit);
+			} else if (WORST_FIRST.compare(hit, heap.peek()) > 0) {
+				heap.poll();
+				heap.add(hit);
+			}
+		}
+		return ranked(heap);
+	}
+
+	//top k of the hits of several disjoint parts of a collection, each already its own top k
+	public static List<Hit> merge(List<List<Hit>> results, int k) {
+		PriorityQueue<Hit> heap = new PriorityQueue<>(k + 1, WORST_FIRST);
+		for (List<Hit> hits : results) {
+			for (Hit hit : hits) {
+				if (heap.size() < k) {
+					heap.add(hit);
+				} else if (WORST_FIRST.compare(hit, heap.peek()) > 0) {
+					heap.poll();
+					heap.add(hit);
+				} else {
+					//the rest of this list ranks lower still
+					break;
+				}
+			}
+		}
+		return ranked(heap);
+	}
+
+	private static List<Hit> ranked(PriorityQueue<Hit> heap) {
+		List<Hit> hits = new ArrayList<>(heap);
+		hits.sort(Collections.reverseOrder(WORST_FIRST));
+		return hits;
+	}
+
+	//Top k of each query with the time taken, against scoring every posting
+	//Usage: Ranker Index_Version2.compressed [-bm25] [-k 10] "flow pressur boundari" ...
+	public static void main(String[] args) throws IOException {
+		IndexReader reader = new IndexReader(args[0]);
+		boolean bm25 = false;
+		int k = 10;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-bm25")) {
+				bm25 = true;
+				continue;
+			}
+			if (args[i].equals("-k")) {
+				k = Integer.parseInt(args[++i]);
+				continue;
+			}
+			List<String> terms = Arrays.asList(args[i].trim().split("\\s+"));
+			List<Hit> hits = topK(reader, terms, k, bm25);
+			long best = Long.MAX_VALUE, bestExhaustive = Long.MAX_VALUE;
+			for (int round = 0; round < 200; round++) {
+				long t0 = System.nanoTime();
+				topK(reader, terms, k, bm25);
+				long t1 = System.nanoTime();
+				exhaustive(reader, terms, k, bm25);
+				long t2 = System.nanoTime();
+				best = Math.min(best, t1 - t0);
+				bestExhaustive = Math.min(bestExhaustive, t2 - t1);
+			}
+			System.out.println("Query :: " + args[i] + (bm25 ? " (BM25)" : " (max tf tf-idf)"));
+			System.out.println("Top " + k + " :: " + hits);
+			System.out.println("Time taken :: " + best / 1000.0 + " us, scoring every posting :: " + bestExhaustive / 1000.0 + " us");
+		}
+	}
+}
@@ -0,0 +1,74 @@
+//===========================================================================================================================
+//	Program : Class that sends the queries of one shard to its ShardServer
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+public class RemoteShard implements Shard {
+	private String host;
+	private int port;
+	private Socket socket;
+	private DataInputStream in;
+	private DataOutputStream out;
+
+	//the connection is kept open for the queries that follow
+	public RemoteShard(String host, int port) throws IOException {
+		this.host = host;
+		this.port = port;
+		socket = new Socket(host, port);
+		socket.setTcpNoDelay(true);
+		in = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+		out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+	}
+
+	//one request at a time on the connection
+	@Override
+	public synchronized List<Ranker.Hit> topK(int version, List<String> terms, int k, boolean bm25) throws IOException {
+		out.writeByte(ShardServer.OP_TOP_K);
+		out.writeByte(version);
+		out.writeInt(k);
+		out.writeBoolean(bm25);
+		out.writeInt(terms.size());
+		for (String term : terms)
+			out.writeUTF(term);
+		out.flush();
+		checkReply();
+		List<Ranker.Hit> hits = new ArrayList<>();
+		for (int i = in.readInt(); i > 0; i--)
+			hits.add(new Ranker.Hit(in.readInt(), in.readDouble()));
+		return hits;
+	}
+
+	@Override
+	public synchronized int[] search(int version, String query) throws IOException {
+		out.writeByte(ShardServer.OP_SEARCH);
+		out.writeByte(version);
+		out.writeUTF(query);
+		out.flush();
+		checkReply();
+		int[] docIds = new int[in.readInt()];
+		for (int i = 0; i < docIds.length; i++)
+			docIds[i] = in.readInt();
+		return docIds;
+	}
+
+	private void checkReply() throws IOException {
+		if (!in.readBoolean())
+			throw new IOException("Shard " + this + " failed :: " + in.readUTF());
+	}
+
+	@Override
+	public synchronized void close() throws IOException {
+		socket.close();
+	}
+
+	@Override
+	public String toString() {
+		return host + ":" + port;
+	}
+}
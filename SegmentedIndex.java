@@ -0,0 +1,391 @@
+//===========================================================================================================================
+//	Program : Class that adds documents to a stem index a few at a time, as immutable compressed segments merged in the background
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public class SegmentedIndex {
+	//documents buffered in memory before they are written as a segment
+	public static final int BUFFER_DOCUMENTS = 256;
+	//a tier holds segments within a factor of MERGE_FACTOR in documents, MERGE_FACTOR of them in a row are merged
+	public static final int MERGE_FACTOR = 4;
+	//names of the live segments in docId order, one per line
+	private static final String MANIFEST = "segments";
+	private static final String SEGMENT_PREFIX = "segment_";
+	private static final String SEGMENT_SUFFIX = ".compressed";
+	private static final long BUFFER_BUDGET = 16L * 1024 * 1024;
+
+	//One immutable segment file, its documents have docIds above the ones of the segments before it
+	private static class Segment {
+		File file;
+		IndexReader reader;
+		int documentCount, maxDocId;
+		//one for the list of live segments and one for every query that holds a snapshot with it, counted under segmentsLock
+		int references = 1;
+		//merged into another segment, its file goes once the last snapshot with it is released
+		boolean retired;
+
+		Segment(File file) throws IOException {
+			this.file = file;
+			reader = new IndexReader(file.getPath());
+			documentCount = reader.getDocumentStatistics().getDocumentCount();
+			maxDocId = reader.getDocumentStatistics().getMaxDocId();
+		}
+
+		//the reader is closed once nothing can search the segment, and the file of a merged segment is deleted then
+		void release() {
+			if (--references > 0)
+				return;
+			reader.close();
+			if (retired)
+				file.delete();
+		}
+
+		int tier(int bufferDocuments) {
+			int tier = 0;
+			for (long size = (long) bufferDocuments * MERGE_FACTOR; documentCount >= size; size *= MERGE_FACTOR)
+				tier++;
+			return tier;
+		}
+
+		@Override
+		public String toString() {
+			return file.getName() + " (" + documentCount + " docs)";
+		}
+	}
+
+	private File directory;
+	private int bufferDocuments;
+	private PostingCodec codec;
+	private TokenScanner scanner;
+	private StemCache stemCache = new StemCache();
+	private List<String> tokens = new ArrayList<>();
+	private SpimiInverter buffer;
+	private int bufferedCount, maxDocId;
+	private AtomicInteger generation = new AtomicInteger();
+	//replaced as a whole, so a query keeps the list it started with while segments are flushed and merged
+	private volatile List<Segment> segments = new ArrayList<>();
+	//held while the list is replaced, by the flushes and the merge thread
+	private final Object segmentsLock = new Object();
+	private ExecutorService merger = Executors.newSingleThreadExecutor();
+	private volatile IOException mergeFailure;
+	private boolean closed;
+
+	//opens the segments listed in the directory, files left behind by an interrupted merge are deleted
+	public SegmentedIndex(File directory, int bufferDocuments, PostingCodec codec) throws IOException {
+		this.directory = directory;
+		this.bufferDocuments = bufferDocuments;
+		this.codec = codec;
+		scanner = new TokenScanner(Tokenize.loadStopWords());
+		directory.mkdirs();
+		Set<String> live = new HashSet<>();
+		File manifest = new File(directory, MANIFEST);
+		if (manifest.exists()) {
+			List<Segment> opened = new ArrayList<>();
+			for (String name : Files.readAllLines(manifest.toPath(), StandardCharsets.UTF_8)) {
+				if (name.isEmpty())
+					continue;
+				Segment segment = new Segment(new File(directory, name));
+				opened.add(segment);
+				live.add(name);
+				maxDocId = Math.max(maxDocId, segment.maxDocId);
+			}
+			segments = opened;
+		}
+		for (File file : directory.listFiles()) {
+			String name = file.getName();
+			if (!name.startsWith(SEGMENT_PREFIX) || !name.endsWith(SEGMENT_SUFFIX))
+				continue;
+			int number = Integer.parseInt(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+			generation.set(Math.max(generation.get(), number + 1));
+			if (!live.contains(name))
+				file.delete();
+		}
+		buffer = new SpimiInverter("segment", BUFFER_BUDGET);
+		scheduleMerge();
+	}
+
+	public int getMaxDocId() {
+		return maxDocId;
+	}
+
+	public List<String> getSegmentNames() {
+		List<String> names = new ArrayList<>();
+		for (Segment segment : segments)
+			names.add(segment.toString());
+		return names;
+	}
+
+	public synchronized void addDocument(int docId, File file) throws IOException {
+		tokens.clear();
+		addTokens(docId, scanner.tokenize(file, tokens));
+	}
+
+	public synchronized void addDocument(int docId, CharSequence text) throws IOException {
+		tokens.clear();
+		addTokens(docId, scanner.tokenize(text, tokens));
+	}
+
+	//the stems of the tokens go to the buffer, which is written as a segment once it holds bufferDocuments documents
+	private void addTokens(int docId, int docLen) throws IOException {
+		if (docId <= maxDocId)
+			throw new IllegalArgumentException("docId " + docId + " is not above the last one added, " + maxDocId);
+		buffer.startDocument(docId, docLen);
+		for (String token : tokens)
+			buffer.addToken(buffer.termId(stemCache.getStem(stemCache.stemId(token))));
+		buffer.endDocument();
+		maxDocId = docId;
+		if (++bufferedCount >= bufferDocuments)
+			flush();
+	}
+
+	//writes the buffered documents as a new segment, they are searchable from then on
+	public synchronized void flush() throws IOException {
+		checkMerges();
+		if (bufferedCount == 0)
+			return;
+		TreeMap<String, DictionaryClass> info = buffer.finish();
+		Segment segment = writeSegment(info, buffer.getDocumentStatistics());
+		buffer = new SpimiInverter("segment", BUFFER_BUDGET);
+		bufferedCount = 0;
+		synchronized (segmentsLock) {
+			List<Segment> updated = new ArrayList<>(segments);
+			updated.add(segment);
+			publish(updated);
+		}
+		scheduleMerge();
+	}
+
+	//flushes the buffer, waits for the merges to finish and releases the readers, queries still running keep theirs
+	public synchronized void close() throws IOException {
+		try {
+			flush();
+		} finally {
+			merger.shutdown();
+			try {
+				merger.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			synchronized (segmentsLock) {
+				if (!closed) {
+					closed = true;
+					for (Segment segment : segments)
+						segment.release();
+				}
+			}
+		}
+		checkMerges();
+	}
+
+	//the live segments with a reference for the caller, so a merge does not close them under a query
+	private List<Segment> acquire() {
+		synchronized (segmentsLock) {
+			if (closed)
+				throw new IllegalStateException("segmented index is closed");
+			List<Segment> snapshot = segments;
+			for (Segment segment : snapshot)
+				segment.references++;
+			return snapshot;
+		}
+	}
+
+	private void release(List<Segment> snapshot) {
+		synchronized (segmentsLock) {
+			for (Segment segment : snapshot)
+				segment.release();
+		}
+	}
+
+	private void checkMerges() throws IOException {
+		if (mergeFailure != null)
+			throw mergeFailure;
+	}
+
+	private Segment writeSegment(TreeMap<String, DictionaryClass> info, DocumentStatistics documents) throws IOException {
+		File file = new File(directory, SEGMENT_PREFIX + generation.getAndIncrement() + SEGMENT_SUFFIX);
+		TermDictionary dictionary = TermDictionary.build(info.keySet(), Compression.blockSize, true);
+		try (IndexWriter out = new IndexWriter(file)) {
+			Compression.writeCompressedIndex(out, info, documents, dictionary, true, codec);
+			out.commit();
+		}
+		return new Segment(file);
+	}
+
+	//the manifest is written to a temporary file and renamed over the old one, so it always lists whole segments
+	private void publish(List<Segment> updated) throws IOException {
+		File temp = new File(directory, MANIFEST + ".tmp");
+		try (Writer out = new OutputStreamWriter(new FileOutputStream(temp), StandardCharsets.UTF_8)) {
+			for (Segment segment : updated)
+				out.write(segment.file.getName() + "\n");
+		}
+		Files.move(temp.toPath(), new File(directory, MANIFEST).toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+		segments = updated;
+	}
+
+	private void scheduleMerge() {
+		if (!merger.isShutdown())
+			merger.execute(this::mergeOnce);
+	}
+
+	//merges the first MERGE_FACTOR segments in a row of the same tier, and looks again after a merge
+	private void mergeOnce() {
+		if (mergeFailure != null)
+			return;
+		List<Segment> snapshot = segments;
+		for (int start = 0; start + MERGE_FACTOR <= snapshot.size(); start++) {
+			int tier = snapshot.get(start).tier(bufferDocuments);
+			int end = start + 1;
+			while (end < start + MERGE_FACTOR && snapshot.get(end).tier(bufferDocuments) == tier)
+				end++;
+			if (end < start + MERGE_FACTOR)
+				continue;
+			List<Segment> run = new ArrayList<>(snapshot.subList(start, end));
+			try {
+				Segment merged = merge(run);
+				synchronized (segmentsLock) {
+					//flushes only add segments at the end, so the run is still in one piece
+					List<Segment> updated = new ArrayList<>(segments);
+					int at = updated.indexOf(run.get(0));
+					updated.subList(at, at + run.size()).clear();
+					updated.add(at, merged);
+					publish(updated);
+					//queries that started before keep reading the old segments, the last one to finish deletes them
+					for (Segment segment : run) {
+						segment.retired = true;
+						segment.release();
+					}
+				}
+			} catch (IOException e) {
+				mergeFailure = e;
+				return;
+			}
+			scheduleMerge();
+			return;
+		}
+	}
+
+	//the segments hold increasing docId ranges, so their posting lists are appended one after the other
+	private Segment merge(List<Segment> run) throws IOException {
+		TreeMap<String, DictionaryClass> info = new TreeMap<>(TermDictionary.TERM_ORDER);
+		DocumentStatistics documents = new DocumentStatistics();
+		for (Segment segment : run) {
+			IndexReader reader = segment.reader;
+			DocumentStatistics segmentDocuments = reader.getDocumentStatistics();
+			for (int docId = 1; docId <= segmentDocuments.getMaxDocId(); docId++) {
+				if (!segmentDocuments.contains(docId))
+					continue;
+				documents.startDocument(docId, segmentDocuments.getDocLen(docId));
+				documents.setMaxTf(docId, segmentDocuments.getMaxTf(docId));
+			}
+			int termIndex = 0;
+			for (String term : reader.getDictionary()) {
+				PostingsCursor cursor = reader.openPostings(termIndex++);
+				DictionaryClass entry = info.get(term);
+				if (entry == null) {
+					entry = new DictionaryClass(term, new PostingList(cursor.getDocFrequency()));
+					info.put(term, entry);
+				}
+				PostingList postings = entry.getPostingList();
+				while (cursor.nextDoc() != DocIdIterator.NO_MORE_DOCS)
+					postings.add(cursor.docId(), cursor.termFrequency());
+				entry.setDocFrequency(postings.size());
+			}
+		}
+		for (DictionaryClass entry : info.values())
+			entry.getPostingList().seal();
+		return writeSegment(info, documents);
+	}
+
+	//docIds matching a boolean query in every segment, in docId order since the segments are
+	public int[] search(String query) {
+		List<Segment> snapshot = acquire();
+		int[][] matches = new int[snapshot.size()][];
+		int count = 0;
+		try {
+			for (int i = 0; i < matches.length; i++) {
+				matches[i] = BooleanQuery.search(snapshot.get(i).reader, query);
+				count += matches[i].length;
+			}
+		} finally {
+			release(snapshot);
+		}
+		int[] docIds = new int[count];
+		int at = 0;
+		for (int[] segmentMatches : matches) {
+			System.arraycopy(segmentMatches, 0, docIds, at, segmentMatches.length);
+			at += segmentMatches.length;
+		}
+		return docIds;
+	}
+
+	//top k of every segment with the idf and average docLen of all of them, and the top k of those
+	public List<Ranker.Hit> topK(Collection<String> terms, int k, boolean bm25) {
+		List<Segment> snapshot = acquire();
+		try {
+			CollectionStatistics statistics = new CollectionStatistics();
+			for (Segment segment : snapshot)
+				statistics.add(segment.reader, terms);
+			List<List<Ranker.Hit>> results = new ArrayList<>();
+			for (Segment segment : snapshot)
+				results.add(Ranker.topK(segment.reader, terms, k, bm25, statistics));
+			return Ranker.merge(results, k);
+		} finally {
+			release(snapshot);
+		}
+	}
+
+	//Adds the files of a folder with docIds above the last one indexed, so a run only adds the new documents
+	//Usage: SegmentedIndex <directory> [-add <file or folder>] [-query "<boolean query>"] [-rank "<stems>"] [-bm25] [-k 10]
+	public static void main(String[] args) throws IOException {
+		SegmentedIndex index = new SegmentedIndex(new File(args[0]), BUFFER_DOCUMENTS, Stemmer.postingCodec);
+		boolean bm25 = false;
+		int k = 10;
+		for (int i = 1; i < args.length; i++) {
+			if (args[i].equals("-bm25")) {
+				bm25 = true;
+			} else if (args[i].equals("-k")) {
+				k = Integer.parseInt(args[++i]);
+			} else if (args[i].equals("-add")) {
+				File input = new File(args[++i]);
+				List<File> files = new ArrayList<>();
+				if (input.isDirectory())
+					files.addAll(Arrays.asList(input.listFiles()));
+				else
+					files.add(input);
+				//zero padded names sort in docId order
+				Collections.sort(files);
+				Timer timeAdd = new Timer();
+				int added = 0;
+				for (File file : files) {
+					int docId = Tokenize.docId(file);
+					if (docId > index.getMaxDocId()) {
+						index.addDocument(docId, file);
+						added++;
+					}
+				}
+				index.close();
+				System.out.println("Documents added :: " + added + ", time taken :: " + timeAdd.end());
+				System.out.println("Segments :: " + index.getSegmentNames());
+				index = new SegmentedIndex(new File(args[0]), BUFFER_DOCUMENTS, Stemmer.postingCodec);
+			} else if (args[i].equals("-query")) {
+				int[] docIds = index.search(args[++i]);
+				System.out.println("Query :: " + args[i] + " :: " + docIds.length + " documents " + Arrays.toString(Arrays.copyOf(docIds, Math.min(20, docIds.length))));
+			} else if (args[i].equals("-rank")) {
+				List<String> terms = Arrays.asList(args[++i].trim().split("\\s+"));
+				System.out.println("Top " + k + " :: " + args[i] + " :: " + index.topK(terms, k, bm25));
+			}
+		}
+		index.close();
+	}
+}
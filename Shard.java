@@ -0,0 +1,23 @@
+//===========================================================================================================================
+//	Program : Interface of one docId range of a sharded collection, in this process or in a shard server
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.IOException;
+import java.util.List;
+
+public interface Shard {
+	//version 1 is the lemma index, version 2 the stem index
+	int VERSION_LEMMA = 1;
+	int VERSION_STEM = 2;
+
+	//top k of the shard, scored with the statistics of the whole collection
+	List<Ranker.Hit> topK(int version, List<String> terms, int k, boolean bm25) throws IOException;
+
+	//docIds of the shard matching a boolean query, in docId order
+	int[] search(int version, String query) throws IOException;
+
+	default void close() throws IOException {
+	}
+}
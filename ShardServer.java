@@ -0,0 +1,116 @@
+//===========================================================================================================================
+//	Program : Class that serves the queries of one shard over a socket, so shards can run as separate processes
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+
+//A request is an op byte and its arguments, the reply is a boolean that is false when the shard failed, then the
+//result or the error message
+//	OP_TOP_K  : version byte, k int, bm25 boolean, term count int, terms UTF -> hit count int, (docId int, score double) per hit
+//	OP_SEARCH : version byte, query UTF -> docId count int, docIds int
+//a connection carries any number of requests one after the other
+public class ShardServer {
+	public static final byte OP_TOP_K = 1;
+	public static final byte OP_SEARCH = 2;
+
+	private Shard shard;
+	private ServerSocket serverSocket;
+
+	public ShardServer(Shard shard, int port) throws IOException {
+		this.shard = shard;
+		//only processes on this machine can connect
+		serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress());
+	}
+
+	public int getPort() {
+		return serverSocket.getLocalPort();
+	}
+
+	//one thread per connection, term lookups and posting cursors are made per query, so the readers are shared safely
+	public void serve() throws IOException {
+		while (!serverSocket.isClosed()) {
+			Socket socket;
+			try {
+				socket = serverSocket.accept();
+			} catch (IOException e) {
+				if (serverSocket.isClosed())
+					return;
+				throw e;
+			}
+			Thread connection = new Thread(() -> handle(socket), "shard-connection-" + socket.getPort());
+			connection.setDaemon(true);
+			connection.start();
+		}
+	}
+
+	public void close() throws IOException {
+		serverSocket.close();
+	}
+
+	private void handle(Socket socket) {
+		try (Socket s = socket) {
+			s.setTcpNoDelay(true);
+			DataInputStream in = new DataInputStream(new BufferedInputStream(s.getInputStream()));
+			DataOutputStream out = new DataOutputStream(new BufferedOutputStream(s.getOutputStream()));
+			while (true) {
+				int op;
+				try {
+					op = in.readByte();
+				} catch (EOFException e) {
+					return;
+				}
+				try {
+					if (op == OP_TOP_K) {
+						int version = in.readByte();
+						int k = in.readInt();
+						boolean bm25 = in.readBoolean();
+						List<String> terms = new ArrayList<>();
+						for (int i = in.readInt(); i > 0; i--)
+							terms.add(in.readUTF());
+						List<Ranker.Hit> hits = shard.topK(version, terms, k, bm25);
+						out.writeBoolean(true);
+						out.writeInt(hits.size());
+						for (Ranker.Hit hit : hits) {
+							out.writeInt(hit.docId);
+							out.writeDouble(hit.score);
+						}
+					} else if (op == OP_SEARCH) {
+						int version = in.readByte();
+						int[] docIds = shard.search(version, in.readUTF());
+						out.writeBoolean(true);
+						out.writeInt(docIds.length);
+						for (int docId : docIds)
+							out.writeInt(docId);
+					} else {
+						//the length of the arguments is not known, so the connection is dropped
+						out.writeBoolean(false);
+						out.writeUTF("unknown op " + op);
+						out.flush();
+						return;
+					}
+				} catch (RuntimeException e) {
+					//the arguments are read before anything can fail, so the connection is still in step
+					out.writeBoolean(false);
+					out.writeUTF(String.valueOf(e));
+				}
+				out.flush();
+			}
+		} catch (IOException e) {
+			System.out.println("Shard connection closed :: " + e);
+		}
+	}
+
+	//Usage: ShardServer <shard directory> <port>
+	public static void main(String[] args) throws IOException {
+		ShardServer server = new ShardServer(new LocalShard(new File(args[0])), Integer.parseInt(args[1]));
+		System.out.println("Serving " + args[0] + " on port :: " + server.getPort());
+		server.serve();
+	}
+}
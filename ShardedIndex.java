@@ -0,0 +1,226 @@
+//===========================================================================================================================
+//	Program : Class that splits the collection into docId range shards and answers a query on all of them at once
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+public class ShardedIndex implements Shard {
+	private static final String SHARD_PREFIX = "shard_";
+
+	private List<Shard> shards;
+	//one thread per shard, so every shard works on the query at the same time
+	private ExecutorService pool;
+
+	//the shards in docId order
+	public ShardedIndex(List<Shard> shards) {
+		this.shards = shards;
+		pool = Executors.newFixedThreadPool(Math.max(1, shards.size()));
+	}
+
+	//shards built in a directory, answered in this process
+	public static ShardedIndex open(File directory) throws IOException {
+		List<Shard> shards = new ArrayList<>();
+		for (File shardDirectory : shardDirectories(directory))
+			shards.add(new LocalShard(shardDirectory));
+		return new ShardedIndex(shards);
+	}
+
+	//shards served by ShardServer processes, as host:port in docId order
+	public static ShardedIndex connect(List<String> addresses) throws IOException {
+		List<Shard> shards = new ArrayList<>();
+		for (String address : addresses) {
+			int colon = address.lastIndexOf(':');
+			shards.add(new RemoteShard(address.substring(0, colon), Integer.parseInt(address.substring(colon + 1))));
+		}
+		return new ShardedIndex(shards);
+	}
+
+	private static List<File> shardDirectories(File directory) {
+		List<File> shardDirectories = new ArrayList<>();
+		for (int shard = 0; new File(directory, SHARD_PREFIX + shard).isDirectory(); shard++)
+			shardDirectories.add(new File(directory, SHARD_PREFIX + shard));
+		return shardDirectories;
+	}
+
+	//Splits the files, in docId order, into shardCount ranges and builds the lemma and stem index of each range on
+	//its own thread, then gives every shard the document count, docLens and dfs of the whole collection
+	public static void build(List<File> files, int shardCount, File directory, long memoryBudget) throws IOException {
+		directory.mkdirs();
+		Lemmatize.startPipelines(shardCount);
+		List<String> stopWords = Tokenize.loadStopWords();
+		List<File> shardDirectories = new ArrayList<>();
+		ExecutorService builders = Executors.newFixedThreadPool(shardCount);
+		List<Future<Void>> built = new ArrayList<>();
+		for (int shard = 0; shard < shardCount; shard++) {
+			List<File> range = files.subList((int) ((long) files.size() * shard / shardCount), (int) ((long) files.size() * (shard + 1) / shardCount));
+			File shardDirectory = new File(directory, SHARD_PREFIX + shard);
+			shardDirectories.add(shardDirectory);
+			built.add(builders.submit(() -> {
+				buildShard(range, shardDirectory, memoryBudget / shardCount, stopWords);
+				return null;
+			}));
+		}
+		try {
+			for (Future<Void> future : built)
+				get(future);
+		} finally {
+			builders.shutdown();
+		}
+		for (int version = VERSION_LEMMA; version <= VERSION_STEM; version++) {
+			CollectionStatistics statistics = new CollectionStatistics();
+			for (File shardDirectory : shardDirectories) {
+				try (IndexReader reader = new IndexReader(LocalShard.indexFile(shardDirectory, version).getPath())) {
+					statistics.add(reader);
+				}
+			}
+			for (File shardDirectory : shardDirectories) {
+				try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(LocalShard.statisticsFile(shardDirectory, version))))) {
+					statistics.writeTo(out);
+				}
+			}
+		}
+	}
+
+	//the same lemmas and stems as Tokenize, inverted on their own so the shards can be built at the same time
+	private static void buildShard(List<File> files, File shardDirectory, long memoryBudget, List<String> stopWords) throws IOException {
+		shardDirectory.mkdirs();
+		TokenScanner scanner = new TokenScanner(stopWords);
+		StemCache stemCache = new StemCache();
+		SpimiInverter lemmaInverter = new SpimiInverter("lemma", memoryBudget / 2);
+		SpimiInverter stemInverter = new SpimiInverter("stem", memoryBudget / 2);
+		List<String> tokens = new ArrayList<>();
+		List<String> lemmas = new ArrayList<>();
+		for (File file : files) {
+			tokens.clear();
+			int docLen = scanner.tokenize(file, tokens);
+			int docId = Tokenize.docId(file);
+			Lemmatize.lemmatizeDocument(tokens, lemmas);
+			lemmaInverter.startDocument(docId, docLen);
+			for (String lemma : lemmas)
+				lemmaInverter.addToken(lemmaInverter.termId(lemma));
+			lemmaInverter.endDocument();
+			stemInverter.startDocument(docId, docLen);
+			for (String token : tokens)
+				stemInverter.addToken(stemInverter.termId(stemCache.getStem(stemCache.stemId(token))));
+			stemInverter.endDocument();
+		}
+		//blocked dictionary for version 1 and front coding with delta codes for version 2, as in Tokenize
+		writeIndex(lemmaInverter, LocalShard.indexFile(shardDirectory, VERSION_LEMMA), false, Lemmatize.postingCodec);
+		writeIndex(stemInverter, LocalShard.indexFile(shardDirectory, VERSION_STEM), true, Stemmer.postingCodec);
+	}
+
+	private static void writeIndex(SpimiInverter inverter, File file, boolean version2, PostingCodec codec) throws IOException {
+		List<String> terms = inverter.sortedTerms();
+		TermDictionary dictionary = TermDictionary.build(terms, Compression.blockSize, version2);
+		try (IndexWriter out = new IndexWriter(file)) {
+			//codecs keep buffers, so every thread writes with its own
+			Compression.writeCompressedIndex(out, inverter.postingLists(), terms.size(), inverter.getDocumentStatistics(), dictionary, version2, PostingCodec.forId(codec.getId()));
+			out.commit();
+		}
+		inverter.close();
+	}
+
+	//top k of every shard at once, each scored with the statistics of the whole collection, and the top k of those
+	@Override
+	public List<Ranker.Hit> topK(int version, List<String> terms, int k, boolean bm25) throws IOException {
+		List<Future<List<Ranker.Hit>>> futures = new ArrayList<>();
+		for (Shard shard : shards)
+			futures.add(pool.submit(() -> shard.topK(version, terms, k, bm25)));
+		List<List<Ranker.Hit>> results = new ArrayList<>();
+		for (Future<List<Ranker.Hit>> future : futures)
+			results.add(get(future));
+		return Ranker.merge(results, k);
+	}
+
+	//the shards hold increasing docId ranges, so their matches are appended one after the other
+	@Override
+	public int[] search(int version, String query) throws IOException {
+		List<Future<int[]>> futures = new ArrayList<>();
+		for (Shard shard : shards)
+			futures.add(pool.submit(() -> shard.search(version, query)));
+		int[][] matches = new int[futures.size()][];
+		int count = 0;
+		for (int i = 0; i < matches.length; i++) {
+			matches[i] = get(futures.get(i));
+			count += matches[i].length;
+		}
+		int[] docIds = new int[count];
+		int at = 0;
+		for (int[] shardMatches : matches) {
+			System.arraycopy(shardMatches, 0, docIds, at, shardMatches.length);
+			at += shardMatches.length;
+		}
+		return docIds;
+	}
+
+	@Override
+	public void close() throws IOException {
+		pool.shutdown();
+		for (Shard shard : shards)
+			shard.close();
+	}
+
+	private static <T> T get(Future<T> future) throws IOException {
+		try {
+			return future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while waiting for a shard");
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if (cause instanceof IOException)
+				throw (IOException) cause;
+			if (cause instanceof RuntimeException)
+				throw (RuntimeException) cause;
+			throw new IOException(cause);
+		}
+	}
+
+	//Usage: ShardedIndex -build <shards> <directory> [-budget <MB>]
+	//       ShardedIndex <directory or host:port,host:port,...> [-version 1|2] [-bm25] [-k 10] [-query "<boolean query>"] [-rank "<terms>"]
+	//the terms are lemmas for version 1 and stems for version 2, shard servers are started with ShardServer
+	public static void main(String[] args) throws IOException {
+		if (args[0].equals("-build")) {
+			int shardCount = Integer.parseInt(args[1]);
+			long memoryBudget = 64L * 1024 * 1024;
+			if (args.length > 4 && args[3].equals("-budget"))
+				memoryBudget = Long.parseLong(args[4]) * 1024 * 1024;
+			Timer timeBuild = new Timer();
+			build(Tokenize.collectionFiles(new File("Cranfield/")), shardCount, new File(args[2]), memoryBudget);
+			System.out.println("Time taken to build " + shardCount + " shards :: " + timeBuild.end());
+			return;
+		}
+		ShardedIndex index = new File(args[0]).isDirectory() ? open(new File(args[0])) : connect(Arrays.asList(args[0].split(",")));
+		int version = VERSION_STEM;
+		boolean bm25 = false;
+		int k = 10;
+		try {
+			for (int i = 1; i < args.length; i++) {
+				if (args[i].equals("-bm25")) {
+					bm25 = true;
+				} else if (args[i].equals("-version")) {
+					version = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-k")) {
+					k = Integer.parseInt(args[++i]);
+				} else if (args[i].equals("-query")) {
+					int[] docIds = index.search(version, args[++i]);
+					System.out.println("Query :: " + args[i] + " :: " + docIds.length + " documents " + Arrays.toString(Arrays.copyOf(docIds, Math.min(20, docIds.length))));
+				} else if (args[i].equals("-rank")) {
+					List<String> terms = Arrays.asList(args[++i].trim().split("\\s+"));
+					Timer timeQuery = new Timer();
+					List<Ranker.Hit> hits = index.topK(version, terms, k, bm25);
+					System.out.println("Top " + k + " :: " + args[i] + " :: " + hits + ", time taken :: " + timeQuery.end());
+				}
+			}
+		} finally {
+			index.close();
+		}
+	}
+}
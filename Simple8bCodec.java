@@ -0,0 +1,74 @@
+//===========================================================================================================================
+//	Program : Posting codec that packs as many values as fit into each 64 bit word (Simple-8b)
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public class Simple8bCodec implements PostingCodec {
+	//values and bits per value of each 4 bit selector, the first two only hold runs of 1s
+	private static final int[] COUNTS = {240, 120, 60, 30, 20, 15, 12, 10, 8, 7, 6, 5, 4, 3, 2, 1};
+	private static final int[] BITS = {0, 0, 1, 2, 3, 4, 5, 6, 7, 8, 10, 12, 15, 20, 30, 60};
+
+	@Override
+	public int getId() {
+		return SIMPLE8B;
+	}
+
+	@Override
+	public String getName() {
+		return "simple8b";
+	}
+
+	@Override
+	public int getBlockSize() {
+		return 0;
+	}
+
+	@Override
+	public boolean isByteAligned() {
+		return true;
+	}
+
+	//value - 1 is stored, so tf 1 and gap 1 cost no bits
+	@Override
+	public void encode(int[] values, int count, BitOutputStream out) {
+		out.alignToByte();
+		int pos = 0;
+		while (pos < count) {
+			int selector = 0;
+			while (!fits(values, pos, Math.min(COUNTS[selector], count - pos), BITS[selector]))
+				selector++;
+			int n = Math.min(COUNTS[selector], count - pos);
+			long word = (long) selector << 60;
+			for (int i = 0; i < n; i++)
+				word |= (long) (values[pos + i] - 1) << (i * BITS[selector]);
+			out.writeBits(word, 64);
+			pos += n;
+		}
+	}
+
+	private static boolean fits(int[] values, int pos, int n, int bits) {
+		long limit = 1L << bits;
+		for (int i = 0; i < n; i++) {
+			if (values[pos + i] - 1 >= limit)
+				return false;
+		}
+		return true;
+	}
+
+	@Override
+	public void decode(BitInputStream in, int[] values, int count) {
+		in.alignToByte();
+		int pos = 0;
+		while (pos < count) {
+			long word = in.readLong();
+			int selector = (int) (word >>> 60);
+			int n = Math.min(COUNTS[selector], count - pos);
+			int bits = BITS[selector];
+			long mask = (1L << bits) - 1;
+			for (int i = 0; i < n; i++)
+				values[pos + i] = (int) ((word >>> (i * bits)) & mask) + 1;
+			pos += n;
+		}
+	}
+}
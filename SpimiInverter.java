@@ -0,0 +1,333 @@
+//===========================================================================================================================
+//	Program : Class that builds the dictionary and posting lists in a single pass (SPIMI)
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.*;
+import java.util.*;
+
+public class SpimiInverter implements Inverter {
+	//rough heap cost of a new dictionary entry besides its postings
+	private static final int TERM_OVERHEAD = 96;
+
+	private String name;
+	private long memoryBudget, memoryUsed;
+	private HashMap<String, Integer> termIds = new HashMap<>();
+	private ArrayList<String> terms = new ArrayList<>();
+	//growable posting buffers per termId, docIds are appended in increasing order
+	private int[][] postingDocIds = new int[1024][];
+	private int[][] postingTfs = new int[1024][];
+	private int[] postingSizes = new int[1024];
+	//positions of the postings of each termId, kept only for a positional index
+	private boolean positional;
+	private int[][] postingPositions;
+	private int[] positionSizes;
+	private DocumentStatistics documents = new DocumentStatistics();
+	private int currentDocId;
+	//a token's position is its place among the tokens added for the document, from 0
+	private int position;
+	private List<File> runs = new ArrayList<>();
+	//terms in dictionary order once the last run is flushed
+	private List<String> sortedTerms;
+	private TreeMap<String, DictionaryClass> info;
+
+	public SpimiInverter(String name, long memoryBudget) {
+		this(name, memoryBudget, false);
+	}
+
+	public SpimiInverter(String name, long memoryBudget, boolean positional) {
+		this.name = name;
+		this.memoryBudget = memoryBudget;
+		this.positional = positional;
+		if (positional) {
+			postingPositions = new int[1024][];
+			positionSizes = new int[1024];
+		}
+	}
+
+	//termId of a term, a new id is given the first time a term is seen
+	@Override
+	public int termId(String term) {
+		Integer termId = termIds.get(term);
+		if (termId == null) {
+			termId = terms.size();
+			termIds.put(term, termId);
+			terms.add(term);
+			if (termId == postingSizes.length) {
+				postingDocIds = Arrays.copyOf(postingDocIds, termId * 2);
+				postingTfs = Arrays.copyOf(postingTfs, termId * 2);
+				postingSizes = Arrays.copyOf(postingSizes, termId * 2);
+				if (positional) {
+					postingPositions = Arrays.copyOf(postingPositions, termId * 2);
+					positionSizes = Arrays.copyOf(positionSizes, termId * 2);
+				}
+			}
+			memoryUsed += TERM_OVERHEAD + 2 * term.length();
+		}
+		return termId;
+	}
+
+	@Override
+	public DocumentStatistics getDocumentStatistics() {
+		return documents;
+	}
+
+	@Override
+	public void startDocument(int docId, int docLen) {
+		currentDocId = docId;
+		position = 0;
+		documents.startDocument(docId, docLen);
+	}
+
+	@Override
+	public void addToken(int termId) {
+		int size = postingSizes[termId];
+		int[] docIds = postingDocIds[termId];
+		int tf;
+		if (size > 0 && docIds[size - 1] == currentDocId) {
+			tf = ++postingTfs[termId][size - 1];
+		} else {
+			if (docIds == null || size == docIds.length) {
+				int capacity = docIds == null ? 4 : size * 2;
+				postingDocIds[termId] = docIds = docIds == null ? new int[capacity] : Arrays.copyOf(docIds, capacity);
+				postingTfs[termId] = postingTfs[termId] == null ? new int[capacity] : Arrays.copyOf(postingTfs[termId], capacity);
+				memoryUsed += 8L * (capacity - size);
+			}
+			docIds[size] = currentDocId;
+			postingTfs[termId][size] = tf = 1;
+			postingSizes[termId] = size + 1;
+		}
+		documents.updateMaxTf(currentDocId, tf);
+		if (positional)
+			addPosition(termId);
+		position++;
+	}
+
+	//positions of a term come in document order and increase within a document, so they are appended as they come
+	private void addPosition(int termId) {
+		int[] positions = postingPositions[termId];
+		int size = positionSizes[termId];
+		if (positions == null || size == positions.length) {
+			int capacity = positions == null ? 4 : size * 2;
+			postingPositions[termId] = positions = positions == null ? new int[capacity] : Arrays.copyOf(positions, capacity);
+			memoryUsed += 4L * (capacity - size);
+		}
+		positions[size] = position;
+		positionSizes[termId] = size + 1;
+	}
+
+	//runs are only flushed between documents, so a (term, doc) pair never spans two runs
+	@Override
+	public void endDocument() throws IOException {
+		if (memoryUsed > memoryBudget)
+			flushRun();
+	}
+
+	//termIds of the buffered terms in dictionary order
+	private Integer[] sortedTermIds() {
+		List<Integer> ids = new ArrayList<>();
+		for (int termId = 0; termId < terms.size(); termId++) {
+			if (postingSizes[termId] > 0)
+				ids.add(termId);
+		}
+		Integer[] sorted = ids.toArray(new Integer[0]);
+		Arrays.sort(sorted, new Comparator<Integer>() {
+			@Override
+			public int compare(Integer o1, Integer o2) {
+				return TermDictionary.TERM_ORDER.compare(terms.get(o1), terms.get(o2));
+			}
+		});
+		return sorted;
+	}
+
+	//with runs on disk the terms are all the terms seen, the buffered ones are flushed as the last run
+	@Override
+	public List<String> sortedTerms() throws IOException {
+		if (info != null || runs.isEmpty())
+			return new ArrayList<>(finish().keySet());
+		finishRuns();
+		return sortedTerms;
+	}
+
+	//the postings are held in memory when they fit the budget, otherwise every pass merges the runs again
+	@Override
+	public Iterable<DictionaryClass> postingLists() throws IOException {
+		if (info != null || runs.isEmpty())
+			return finish().values();
+		finishRuns();
+		return new Iterable<DictionaryClass>() {
+			@Override
+			public Iterator<DictionaryClass> iterator() {
+				try {
+					return new RunMerger();
+				} catch (IOException e) {
+					throw new UncheckedIOException(e);
+				}
+			}
+		};
+	}
+
+	public int getRunCount() {
+		return runs.size();
+	}
+
+	//deletes the runs once every pass over the postings is done
+	@Override
+	public void close() {
+		for (File run : runs)
+			run.delete();
+		runs.clear();
+	}
+
+	private void finishRuns() throws IOException {
+		if (sortedTerms != null)
+			return;
+		flushRun();
+		sortedTerms = new ArrayList<>(terms);
+		sortedTerms.sort(TermDictionary.TERM_ORDER);
+	}
+
+	//writes the buffered postings as a sorted run and frees the buffers
+	private void flushRun() throws IOException {
+		File run = File.createTempFile("spimi-" + name + "-", ".run");
+		run.deleteOnExit();
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16));
+		Integer[] sorted = sortedTermIds();
+		out.writeInt(sorted.length);
+		for (int termId : sorted) {
+			int size = postingSizes[termId];
+			out.writeUTF(terms.get(termId));
+			out.writeInt(size);
+			for (int i = 0; i < size; i++) {
+				out.writeInt(postingDocIds[termId][i]);
+				out.writeInt(postingTfs[termId][i]);
+			}
+			if (positional) {
+				for (int i = 0; i < positionSizes[termId]; i++)
+					out.writeInt(postingPositions[termId][i]);
+				postingPositions[termId] = null;
+				positionSizes[termId] = 0;
+			}
+			postingDocIds[termId] = null;
+			postingTfs[termId] = null;
+			postingSizes[termId] = 0;
+		}
+		out.close();
+		runs.add(run);
+		memoryUsed = 0;
+	}
+
+	//the whole dictionary in memory, for the indexes that need it as a map, the runs are merged into it once
+	public TreeMap<String, DictionaryClass> finish() throws IOException {
+		if (info != null)
+			return info;
+		TreeMap<String, DictionaryClass> info = new TreeMap<>(TermDictionary.TERM_ORDER);
+		if (runs.isEmpty()) {
+			for (int termId : sortedTermIds()) {
+				int size = postingSizes[termId];
+				//the arrays are not used by the inverter again, so the posting list takes them over
+				PostingList postings = positional ? new PostingList(postingDocIds[termId], postingTfs[termId], size, postingPositions[termId]) : new PostingList(postingDocIds[termId], postingTfs[termId], size);
+				info.put(terms.get(termId), new DictionaryClass(terms.get(termId), postings.seal()));
+			}
+			return this.info = info;
+		}
+		for (DictionaryClass dictionary : postingLists())
+			info.put(dictionary.getTerm(), dictionary);
+		close();
+		return this.info = info;
+	}
+
+	//One run being merged, at the term it is on
+	private class RunReader {
+		DataInputStream in;
+		int runIndex, termCount;
+		String term;
+
+		RunReader(File run, int runIndex) throws IOException {
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), 1 << 16));
+			this.runIndex = runIndex;
+			termCount = in.readInt();
+		}
+
+		//moves to the next term, the postings of the term before have to be read first
+		boolean next() throws IOException {
+			if (termCount-- == 0) {
+				in.close();
+				return false;
+			}
+			term = in.readUTF();
+			return true;
+		}
+
+		//postings of the current term as a new list, or appended to the list of an earlier run
+		PostingList readPostings(PostingList postings) throws IOException {
+			int size = in.readInt();
+			int[] docIds = new int[size];
+			int[] tfs = new int[size];
+			int positionCount = 0;
+			for (int i = 0; i < size; i++) {
+				docIds[i] = in.readInt();
+				tfs[i] = in.readInt();
+				positionCount += tfs[i];
+			}
+			if (!positional) {
+				if (postings == null)
+					return new PostingList(docIds, tfs, size);
+				postings.addAll(docIds, tfs, size);
+				return postings;
+			}
+			int[] positions = new int[positionCount];
+			for (int i = 0; i < positionCount; i++)
+				positions[i] = in.readInt();
+			if (postings == null)
+				return new PostingList(docIds, tfs, size, positions);
+			postings.addAll(docIds, tfs, size, positions);
+			return postings;
+		}
+	}
+
+	//k-way merge of the runs, each pass reads them again and holds one posting list at a time
+	private class RunMerger implements Iterator<DictionaryClass> {
+		//ordered by term, then by run so postings of a term come out in docId order
+		PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()), new Comparator<RunReader>() {
+			@Override
+			public int compare(RunReader o1, RunReader o2) {
+				int cmp = TermDictionary.TERM_ORDER.compare(o1.term, o2.term);
+				return cmp != 0 ? cmp : Integer.compare(o1.runIndex, o2.runIndex);
+			}
+		});
+
+		RunMerger() throws IOException {
+			for (int i = 0; i < runs.size(); i++) {
+				RunReader reader = new RunReader(runs.get(i), i);
+				if (reader.next())
+					queue.add(reader);
+			}
+		}
+
+		@Override
+		public boolean hasNext() {
+			return !queue.isEmpty();
+		}
+
+		@Override
+		public DictionaryClass next() {
+			if (queue.isEmpty())
+				throw new NoSuchElementException();
+			String term = queue.peek().term;
+			PostingList postings = null;
+			try {
+				while (!queue.isEmpty() && queue.peek().term.equals(term)) {
+					RunReader reader = queue.poll();
+					postings = reader.readPostings(postings);
+					if (reader.next())
+						queue.add(reader);
+				}
+			} catch (IOException e) {
+				throw new UncheckedIOException(e);
+			}
+			return new DictionaryClass(term, postings.seal());
+		}
+	}
+}
@@ -0,0 +1,72 @@
+//===========================================================================================================================
+//	Program : Class that remembers the stem id of each surface form, shared by the tokenizer threads
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+public class StemCache {
+	private final ConcurrentHashMap<String, Integer> stemIds = new ConcurrentHashMap<>();
+	private final ConcurrentHashMap<String, Integer> idsByStem = new ConcurrentHashMap<>();
+	//stem of each id, ids are given in the order the stems are first seen
+	private final ArrayList<String> stems = new ArrayList<>();
+	//word buffer of each thread, stemmed in place on a miss
+	private final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[64]);
+	private final LongAdder hits = new LongAdder(), misses = new LongAdder();
+
+	//stem id of a word, the word is stemmed only the first time it is seen
+	public int stemId(String word) {
+		Integer id = stemIds.get(word);
+		if (id != null) {
+			hits.increment();
+			return id;
+		}
+		misses.increment();
+		char[] buffer = buffers.get();
+		int len = word.length();
+		if (len > buffer.length) {
+			buffer = new char[Math.max(len, buffer.length * 2)];
+			buffers.set(buffer);
+		}
+		word.getChars(0, len, buffer, 0);
+		String stem = new String(buffer, 0, Stemmer.stem(buffer, 0, len));
+		id = idsByStem.computeIfAbsent(stem, this::addStem);
+		stemIds.putIfAbsent(word, id);
+		return id;
+	}
+
+	//called once per new stem under the map's lock for that stem
+	private Integer addStem(String stem) {
+		synchronized (stems) {
+			stems.add(stem);
+			return stems.size() - 1;
+		}
+	}
+
+	public String getStem(int stemId) {
+		synchronized (stems) {
+			return stems.get(stemId);
+		}
+	}
+
+	public int size() {
+		return stemIds.size();
+	}
+
+	public long getHits() {
+		return hits.sum();
+	}
+
+	public long getMisses() {
+		return misses.sum();
+	}
+
+	@Override
+	public String toString() {
+		long h = hits.sum(), m = misses.sum(), lookups = h + m;
+		return "hits " + h + ", misses " + m + ", hit rate " + (lookups == 0 ? 0 : (100 * h / lookups)) + "%, size " + stemIds.size() + ", stems " + idsByStem.size();
+	}
+}
@@ -5,11 +5,9 @@
 // 	Date created: 2016/10/26
 //===========================================================================================================================
 import java.io.*;
-import java.util.ArrayList;
-import java.util.HashMap;
-import java.util.Set;
+import java.util.Arrays;
+import java.util.List;
 import java.util.TreeMap;
-import java.util.Map.Entry;
 
 /**
  * Stemmer, implementing the Porter Stemming Algorithm
@@ -540,6 +538,34 @@ class Stemmer {
 		i = 0;
 	}
 
+	//one Porter state per thread, so the static stem below can be called from any thread
+	private static final ThreadLocal<Stemmer> workers = ThreadLocal.withInitial(Stemmer::new);
+
+	/**
+	 * Stem the word in word[offset, offset + len) in place and return the
+	 * length of the stem, which is never longer than the word. The caller owns
+	 * the buffer; no objects are made and the call is safe from many threads.
+	 */
+	public static int stem(char[] word, int offset, int len) {
+		Stemmer worker = workers.get();
+		char[] own = worker.b;
+		if (offset == 0) {
+			worker.b = word;
+		} else {
+			if (len > own.length)
+				own = new char[len];
+			System.arraycopy(word, offset, own, 0, len);
+			worker.b = own;
+		}
+		worker.i = len;
+		worker.stem();
+		int stemLen = worker.i_end;
+		if (offset != 0)
+			System.arraycopy(own, 0, word, offset, stemLen);
+		worker.b = own;
+		return stemLen;
+	}
+
 	/**
 	 * Test program for demonstrating the Stemmer. It reads text from a a list
 	 * of files, stems each word, and writes the result to standard output. Note
@@ -550,137 +576,123 @@ class Stemmer {
 	 * @throws UnsupportedEncodingException
 	 * @throws FileNotFoundException
 	 */
-	public static TreeMap<String, DictionaryClass> info = new TreeMap<>();
+	public static TreeMap<String, DictionaryClass> info = new TreeMap<>(TermDictionary.TERM_ORDER);
 	private static int max_docFreq = Integer.MIN_VALUE;
 	private static int min_docFreq = Integer.MAX_VALUE;
 	private static int docId_maxTf = 0;
 	private static int docId_maxDocLen = 0;
-	//Stemminf the collection and frame dictionary and posting list
-	public static void stemmerCollection(ArrayList<String> tokenisedWords) throws FileNotFoundException, UnsupportedEncodingException, IOException {
-		HashMap<Integer, HashMap<String, Integer>> maxFqMap = new HashMap<>();
-		Stemmer s = new Stemmer();
-		String[] term;
-		int docId = 0, docLen = 0, index = 0;
-		Integer maxTf = 0;
-		int termFrequency = 1, docFrequency = 1;
-		DictionaryClass dcNew;
-		String stemToken = "";
-		ArrayList<String> arrayList = new ArrayList<>();
-		HashMap<String, Integer> h = null ;
-		//Timer for the calculating the time
-		Timer timeV2UnCompress = new Timer();
-		Timer timeV2Compress = new Timer();
-		
-		while (index < tokenisedWords.size()) { 
-			termFrequency = 1;
-			docFrequency = 1;
-			term = tokenisedWords.get(index++).split(" ");
-			docId = Integer.parseInt(term[1]);
-			docLen = Integer.parseInt(term[2]);
-			for (char ch : term[0].toCharArray()) {
-				s.add(ch);
-			}
-			s.stem();
-			{
-				stemToken = s.toString();
-				arrayList.add(stemToken+" "+docId+" "+docLen);
-				//storing in hashmap for further logic and finding max tf
-				if (!maxFqMap.containsKey(docId)){
-					h = new HashMap<>();
-					h.put(stemToken, 1);
-					maxFqMap.put(docId, h);
-				} else {
-					h = maxFqMap.get(docId);
-					if(!h.containsKey(stemToken)) {
-						h.put(stemToken, 1);
-					} else {
-						h.put(stemToken,h.get(stemToken) + 1);
-					}
-				}
-			}
+	private static Inverter inverter;
+	//posting lists in dictionary order, from info or merged from the runs of an external inversion
+	private static Iterable<DictionaryClass> postingLists;
+	private static StemCache stemCache;
+	//inverter termId of each stem id, -1 until the stem is first inverted
+	private static int[] termIds = new int[0];
+	//wall time of the in memory index from the first document, and of the compressed index alone
+	private static Metrics.Span timeV2UnCompress, timeV2Compress;
+	//codec of the docId gaps and tfs in Index_Version2.compressed, set from the command line
+	public static PostingCodec postingCodec = new DeltaCodec();
+
+	//To set up the stem cache and the inverter before the first document
+	public static void startIndex(long memoryBudget, boolean external, boolean positions) {
+		stemCache = new StemCache();
+		inverter = external ? new BsbiInverter("stem", memoryBudget) : new SpimiInverter("stem", memoryBudget, positions);
+		//started by the thread that inverts the first document, the span has to end on the thread it began on
+		timeV2UnCompress = null;
+	}
+
+	//Stem ids of the tokens of one document, safe to call from the tokenizer threads
+	public static int[] stemDocument(List<String> tokens, int[] stemIds) {
+		if (stemIds == null || stemIds.length < tokens.size())
+			stemIds = new int[Math.max(tokens.size(), stemIds == null ? 16 : stemIds.length * 2)];
+		for (int t = 0; t < tokens.size(); t++) {
+			stemIds[t] = stemCache.stemId(tokens.get(t));
 		}
-		
-		DocDetails docDet;
-		int i = 0;
-		while (arrayList.size() > i) {
-			term = arrayList.get(i++).split(" ");
-			stemToken = term[0]; 
-			docId = Integer.parseInt(term[1]); 
-			docLen = Integer.parseInt(term[2]);
-			//finding max tf
-			for(Entry<String, Integer> item : Tokenize.sortByValue(maxFqMap.get(docId)).entrySet()) {
-				maxTf = item.getValue();
-				break;
-			}
-			//storing them into dictioanry and inverted list
-			if (!info.containsKey(stemToken))
-				info.put(stemToken, new DictionaryClass(stemToken, docId, docLen, maxTf, termFrequency, docFrequency));
-			else {
-				dcNew = info.get(stemToken);
-				TreeMap<Integer, DocDetails> postingListObj = dcNew.getPostingList(); 
-				if (postingListObj.containsKey(docId)) {
-					docDet = postingListObj.get(docId);
-					docDet.setTermFrequency(docDet.getTermFrequency() + 1);
-					postingListObj.put(docId, docDet);
-					dcNew.setPostingList(postingListObj);
-					info.put(stemToken, dcNew);
-				} else {
-					postingListObj.put(docId, new DocDetails(docLen, maxTf, termFrequency));
-					dcNew.setPostingList(postingListObj);
-					dcNew.setDocFrequency(dcNew.getDocFrequency() + 1);
-					info.put(stemToken, dcNew);
-				}
-			}
+		return stemIds;
+	}
+
+	//Adding the stems of one document to the inverter, documents come in docId order
+	public static void invertDocument(int docId, int docLen, int[] stemIds, int count) throws IOException {
+		if (timeV2UnCompress == null)
+			timeV2UnCompress = Metrics.start("v2_uncompressed");
+		Metrics.Span inverting = Metrics.start(Metrics.INVERT);
+		inverter.startDocument(docId, docLen);
+		for (int t = 0; t < count; t++) {
+			int stemId = stemIds[t];
+			if (stemId >= termIds.length) {
+				int oldLength = termIds.length;
+				termIds = Arrays.copyOf(termIds, Math.max(stemId + 1, oldLength * 2));
+				Arrays.fill(termIds, oldLength, termIds.length, -1);
+			}
+			if (termIds[stemId] < 0)
+				termIds[stemId] = inverter.termId(stemCache.getStem(stemId));
+			inverter.addToken(termIds[stemId]);
 		}
+		inverter.endDocument();
+		inverting.end();
+	}
+
+	//Frame dictionary and posting list once the collection is stemmed
+	public static void buildIndex() throws IOException {
+		if (timeV2UnCompress == null)
+			timeV2UnCompress = Metrics.start("v2_uncompressed");
+		Metrics.Span inverting = Metrics.start(Metrics.INVERT);
+		//the dictionary is only kept as a map when no run was spilled, otherwise every pass merges the runs from disk
+		if (inverter instanceof SpimiInverter && ((SpimiInverter) inverter).getRunCount() == 0)
+			info = ((SpimiInverter) inverter).finish();
+		List<String> terms = inverter.sortedTerms();
+		postingLists = inverter.postingLists();
+		inverting.end();
 		//timer for indexing ends here
 		System.out.println("\nTime taken to buid Index v2 uncompressed :: " + timeV2UnCompress.end());
+		System.out.println("Stem cache :: " + stemCache);
+		timeV2Compress = Metrics.start("v2_compressed");
 		//calling blocking compression followed by front coding, so sent TRUE 
-		Compression.blockingCompression(info, true);
+		TermDictionary dictionary = Compression.blockingCompression(terms, true);
 		//To write in random access file after byte conversion
-		compressionOfStem(info);
+		compressionOfStem(postingLists, terms.size(), dictionary);
 		System.out.println("\nTime taken to buid Index v2 compressed :: " + timeV2Compress.end());
 		//writing uncompressed information as bytes in binary file
-		stemCountInformation(info);
+		stemCountInformation(postingLists);
 	}
 	
 	//To write uncompressed information as bytes in binary file
-	private static void stemCountInformation(TreeMap<String, DictionaryClass> info) throws IOException {
+	private static void stemCountInformation(Iterable<DictionaryClass> postingLists) throws IOException {
 		//PrintWriter writer = new PrintWriter("output");
 		File file = new File("Index_Version2.uncompressed");
-		RandomAccessFile newTextFile = new RandomAccessFile("Index_Version2.uncompressed", "rw");
-		int maxDocLen = Integer.MIN_VALUE, maxDocTf = Integer.MIN_VALUE;
-		for (String stemToken : info.keySet()) {
-			DictionaryClass dictionary = info.get(stemToken);
-			max_docFreq = Math.max(dictionary.getDocFrequency(), max_docFreq);
-			min_docFreq = Math.min(dictionary.getDocFrequency(), min_docFreq);
-			//writer.print(dictionary.getTerm() + "," + dictionary.getDocFrequency() +"|");
-			newTextFile.writeBytes(dictionary.getTerm() + "," + dictionary.getDocFrequency() +"|");
-			Set<Integer> post = dictionary.getPostingList().keySet();
-			int count = 0;
-			for (Integer docId : post) {
-				count++;
-				DocDetails d  = dictionary.getPostingList().get(docId);
-				//writer.print(docId +","+d.getMaxTf() +","+d.getTermFrequency() +","+ d.getDocLen());
-				newTextFile.writeBytes(docId +","+d.getMaxTf() +","+d.getTermFrequency() +","+ d.getDocLen());
-				if (count < post.size()) {
-					//writer.print("->");
-					newTextFile.writeBytes("->");
-				}
-				//For finding doc with max length
-				if (d.getDocLen() > maxDocLen) {
-					maxDocLen = d.getDocLen();
-					docId_maxDocLen = docId;
-				}
-				//For finding doc with max tf
-				if (d.getMaxTf() >  maxDocTf) {
-					maxDocTf = d.getMaxTf();
-					docId_maxTf = docId; 
-				}
+		Metrics.Span writing = Metrics.start(Metrics.WRITE);
+		try (IndexWriter newTextFile = new IndexWriter(file)) {
+			//docLen and max tf are written once per document, ahead of the dictionary
+			DocumentStatistics documents = inverter.getDocumentStatistics();
+			for (int docId = 1; docId <= documents.getMaxDocId(); docId++) {
+				if (documents.contains(docId))
+					newTextFile.writeBytes(docId + "," + documents.getMaxTf(docId) + "," + documents.getDocLen(docId) + System.getProperty("line.separator"));
 			}
-			//writer.println();
 			newTextFile.write(System.getProperty("line.separator").getBytes());
+			docId_maxDocLen = documents.docIdWithMaxDocLen();
+			docId_maxTf = documents.docIdWithMaxTf();
+			for (DictionaryClass dictionary : postingLists) {
+				max_docFreq = Math.max(dictionary.getDocFrequency(), max_docFreq);
+				min_docFreq = Math.min(dictionary.getDocFrequency(), min_docFreq);
+				//writer.print(dictionary.getTerm() + "," + dictionary.getDocFrequency() +"|");
+				newTextFile.writeBytes(dictionary.getTerm() + "," + dictionary.getDocFrequency() +"|");
+				PostingList post = dictionary.getPostingList();
+				int count = 0;
+				for (int p = 0; p < post.size(); p++) {
+					count++;
+					//writer.print(docId +","+d.getTermFrequency());
+					newTextFile.writeBytes(post.getDocId(p) +","+post.getTf(p));
+					if (count < post.size()) {
+						//writer.print("->");
+						newTextFile.writeBytes("->");
+					}
+				}
+				//writer.println();
+				newTextFile.write(System.getProperty("line.separator").getBytes());
+			}
+			newTextFile.commit();
 		}
-		newTextFile.close();
+		writing.end();
+		Metrics.count(Metrics.UNCOMPRESSED_BYTES, file.length());
 		//writer.close();
 		double bytes = file.length();
 		double kilobytes = (bytes / 1024);
@@ -688,49 +700,13 @@ class Stemmer {
 	}
 	
 	//To write in random access file after byte conversion
-	private static void compressionOfStem(TreeMap<String, DictionaryClass> info) throws IOException {
+	private static void compressionOfStem(Iterable<DictionaryClass> postingLists, int termCount, TermDictionary dictionary) throws IOException {
 		File file = new File("Index_Version2.compressed");
-		RandomAccessFile newFile = new RandomAccessFile("Index_Version2.compressed", "rw");
-		int i = 0, j = 0;
-		byte[] frontCodeTermPtr = null;
-		byte[] dcFreq, dcId,  max_tf, termFreq, docLen;
-		int docFreq = 0;
-		//the long string after blocking compression
-		for (String longString : Compression.storeResult)
-			newFile.writeBytes(longString);
-		newFile.write(System.getProperty("line.separator").getBytes());
-		//converting to bytes after gamma compression of all numbers and writing in the file
-		for (String stemToken : info.keySet()) {
-			DictionaryClass dictionary = info.get(stemToken);
-			docFreq = dictionary.getDocFrequency();
-			dcFreq = Compression.convertToByteArray(Compression.deltaCompression(docFreq));
-			newFile.write(dcFreq);
-			newFile.writeBytes("|");
-			Set<Integer> post = dictionary.getPostingList().keySet();
-			for (Integer docId : post) {
-				DocDetails d  = dictionary.getPostingList().get(docId);
-				dcId = Compression.convertToByteArray(Compression.deltaCompression(docId));
-				max_tf = Compression.convertToByteArray(Compression.deltaCompression(d.getMaxTf()));
-				termFreq = Compression.convertToByteArray(Compression.deltaCompression(d.getTermFrequency()));
-				docLen = Compression.convertToByteArray(Compression.deltaCompression(d.getDocLen()));
-				newFile.write(dcId); newFile.writeBytes(",");
-				newFile.write(docLen);newFile.writeBytes(",");
-				newFile.write(max_tf);newFile.writeBytes(",");
-				newFile.write(termFreq);
-			}
-			//term pointers
-			if (i % 8 == 0)
-				frontCodeTermPtr = Compression.convertToByteArray(String.valueOf(Compression.frontCodeTermPtr.get(j++)));
-			else
-				frontCodeTermPtr = null;
-			if (frontCodeTermPtr != null) {
-				newFile.writeBytes("|");
-				newFile.write(frontCodeTermPtr);
-			}
-			newFile.write(System.getProperty("line.separator").getBytes());
-			i++;
+		try (IndexWriter newFile = new IndexWriter(file)) {
+			//front coded dictionary and delta codes
+			Compression.writeCompressedIndex(newFile, postingLists, termCount, inverter.getDocumentStatistics(), dictionary, true, postingCodec);
+			newFile.commit();
 		}
-		newFile.close();
 		double bytes = file.length();
 		double kilobytes = (bytes / 1024);
 		System.out.println("Size of V2 compressed :: " + kilobytes + " KB");
@@ -739,31 +715,45 @@ class Stemmer {
 	//To print the questions asked in the requirement
 	public static void printStatistics() throws IOException {
 		String[] termsTofind = {"Reynolds", "NASA", "Prandtl", "flow", "pressure", "boundary", "shock"};
-		byte[] dcId,  max_tf, termFreq, docLen;
+		byte[] dcId, termFreq;
+		DocumentStatistics documents = inverter.getDocumentStatistics();
 		int docFreq = 0, totalTermFreq = 0, invertedListLen = 0;
 		int nasa_dcFreq = 0, nasa_count = 1;
 		StringBuilder nasa_details = new StringBuilder();
 		System.out.println("\nTerm\t\tdf\ttf\tInvertedListLength");
 		System.out.println("******************************************************");
 		String[] stemToken = {"reynold", "nasa", "prandtl", "flow", "pressur", "boundari", "shock"};
+		//one pass over the posting lists finds the stems asked for and the ones with the largest and smallest df
+		TreeMap<String, DictionaryClass> found = new TreeMap<>();
+		StringBuilder maxFreqWords = new StringBuilder();
+		StringBuilder minFreqWords = new StringBuilder();
+		for (DictionaryClass dictionary : postingLists) {
+			if (Arrays.asList(stemToken).contains(dictionary.getTerm()))
+				found.put(dictionary.getTerm(), dictionary);
+			docFreq = dictionary.getDocFrequency();
+			if (docFreq == max_docFreq) {
+				maxFreqWords.append(dictionary.getTerm() + " ");
+			} else if (docFreq == min_docFreq) {
+				minFreqWords.append(dictionary.getTerm() + " ");
+			}
+		}
+		inverter.close();
 		for (int i = 0; i < termsTofind.length; i++) {
-			DictionaryClass dictionary = info.get(stemToken[i]);
+			DictionaryClass dictionary = found.get(stemToken[i]);
 			docFreq = dictionary.getDocFrequency();
 			if (stemToken[i].equals("nasa"))
 				nasa_dcFreq = docFreq;
-			Set<Integer> post = dictionary.getPostingList().keySet();
-			for (Integer docId : post) {
-				DocDetails d  = dictionary.getPostingList().get(docId);
-				totalTermFreq += d.getTermFrequency();
+			PostingList post = dictionary.getPostingList();
+			for (int p = 0; p < post.size(); p++) {
+				int docId = post.getDocId(p);
+				totalTermFreq += post.getTf(p);
 				
 				dcId = Compression.convertToByteArray(String.valueOf(docId));
-				max_tf = Compression.convertToByteArray(String.valueOf(d.getMaxTf()));
-				termFreq = Compression.convertToByteArray(String.valueOf(d.getTermFrequency()));
-				docLen = Compression.convertToByteArray(String.valueOf(d.getDocLen()));
+				termFreq = Compression.convertToByteArray(String.valueOf(post.getTf(p)));
 				
-				invertedListLen += dcId.length +  max_tf.length + termFreq.length + docLen.length;
+				invertedListLen += dcId.length + termFreq.length;
 				if (nasa_count <= 3 && stemToken[i].equals("nasa")) {
-					nasa_details.append(docId+"\t"+d.getDocLen()+"\t\t"+d.getTermFrequency()+"\t\t"+d.getMaxTf()+"\n");
+					nasa_details.append(docId+"\t"+documents.getDocLen(docId)+"\t\t"+post.getTf(p)+"\t\t"+documents.getMaxTf(docId)+"\n");
 					nasa_count++;
 				}
 			}
@@ -774,19 +764,6 @@ class Stemmer {
 		System.out.println("Doc_Id\tDoc_Length\tTerm_Frequency\tMax_tf");
 		System.out.println("******************************************************");
 		System.out.println(nasa_details);
-
-		StringBuilder maxFreqWords = new StringBuilder();
-		StringBuilder minFreqWords = new StringBuilder();
-
-		for (String token : info.keySet()) {
-			DictionaryClass dictionary = info.get(token);
-			docFreq = dictionary.getDocFrequency();
-			if (docFreq == max_docFreq) {
-				maxFreqWords.append(token + " ");
-			} else if (docFreq == min_docFreq) {
-				minFreqWords.append(token + " ");
-			}
-		}
 		System.out.println("\nStem from index 2 with the largest df :: " + maxFreqWords);
 		System.out.println("Stem from index 2 with the smallest df :: " + minFreqWords);
 		System.out.println("The document with the largest max_tf in collection :: " + docId_maxTf);
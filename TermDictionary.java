@@ -0,0 +1,366 @@
+//===========================================================================================================================
+//	Program : Class that stores the sorted terms as one byte array cut into blocks of k terms, searchable in place
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+public class TermDictionary implements Iterable<String> {
+	private ByteBuffer bytes;
+	//offset of the dictionary in the buffer, block pointers are relative to it
+	private int start, length;
+	private int[] blockPtr;
+	private int termCount, blockSize;
+	private boolean frontCoded;
+
+	public TermDictionary(ByteBuffer bytes, int start, int length, int[] blockPtr, int termCount, int blockSize, boolean frontCoded) {
+		this.bytes = bytes;
+		this.start = start;
+		this.length = length;
+		this.blockPtr = blockPtr;
+		this.termCount = termCount;
+		this.blockSize = blockSize;
+		this.frontCoded = frontCoded;
+	}
+
+	//Blocked compression, a pointer is kept for every blockSize terms
+	//A plain block is the length and bytes of each term, like 8automata8automate9automatic
+	//A front coded block has the first term in full and then the length of the prefix shared with the previous term and the rest,
+	//like 8automata 7 1e 7 2ic, so any term of the block is decoded from the terms before it
+	public static TermDictionary build(Collection<String> sortedTerms, int blockSize, boolean frontCoded) {
+		if (blockSize < 1)
+			throw new IllegalArgumentException("block size " + blockSize);
+		ByteOutput out = new ByteOutput();
+		int[] blockPtr = new int[(sortedTerms.size() + blockSize - 1) / blockSize];
+		List<byte[]> block = new ArrayList<>(blockSize);
+		int blockCount = 0;
+		for (String term : sortedTerms) {
+			block.add(term.getBytes(StandardCharsets.UTF_8));
+			if (block.size() == blockSize) {
+				blockPtr[blockCount++] = out.size;
+				writeBlock(out, block, frontCoded);
+				block.clear();
+			}
+		}
+		if (!block.isEmpty()) {
+			blockPtr[blockCount++] = out.size;
+			writeBlock(out, block, frontCoded);
+		}
+		return new TermDictionary(ByteBuffer.wrap(out.bytes, 0, out.size), 0, out.size, blockPtr, sortedTerms.size(), blockSize, frontCoded);
+	}
+
+	private static void writeBlock(ByteOutput out, List<byte[]> block, boolean frontCoded) {
+		byte[] previous = null;
+		for (byte[] term : block) {
+			int shared = 0;
+			if (frontCoded && previous != null) {
+				while (shared < Math.min(previous.length, term.length) && previous[shared] == term[shared])
+					shared++;
+				out.writeVByte(shared);
+			}
+			out.writeVByte(term.length - shared);
+			out.write(term, shared, term.length - shared);
+			previous = term;
+		}
+	}
+
+	public int getTermCount() {
+		return termCount;
+	}
+
+	public int getBlockSize() {
+		return blockSize;
+	}
+
+	public int getBlockCount() {
+		return blockPtr.length;
+	}
+
+	public boolean isFrontCoded() {
+		return frontCoded;
+	}
+
+	//bytes of the term string alone, the block pointers take 4 more bytes per block
+	public int byteLength() {
+		return length;
+	}
+
+	public int[] getBlockPointers() {
+		return blockPtr;
+	}
+
+	public void writeTo(DataOutput out) throws IOException {
+		byte[] copy = new byte[length];
+		for (int i = 0; i < length; i++)
+			copy[i] = bytes.get(start + i);
+		out.write(copy);
+	}
+
+	public void writeBlockPointers(DataOutput out) throws IOException {
+		ByteBuffer table = ByteBuffer.allocate(4 * blockPtr.length);
+		for (int ptr : blockPtr)
+			table.putInt(ptr);
+		out.write(table.array());
+	}
+
+	//termIndex of the term, -1 if it is not in the dictionary
+	//every call decodes with a cursor of its own, so several threads can search one dictionary
+	public int lookup(String word) {
+		byte[] key = word.getBytes(StandardCharsets.UTF_8);
+		Cursor cursor = new Cursor();
+		int termIndex = search(key, cursor);
+		if (termIndex == cursor.termIndex && compare(cursor.term, cursor.termLen, key) == 0)
+			return termIndex;
+		return -1;
+	}
+
+	//termIndex of the first term that is not smaller than the word, termCount if there is none, used for prefix scans
+	public int ceiling(String word) {
+		return search(word.getBytes(StandardCharsets.UTF_8), new Cursor());
+	}
+
+	//binary search on the first term of every block and then a scan inside that one block
+	private int search(byte[] key, Cursor cursor) {
+		if (termCount == 0)
+			return 0;
+		int low = 0, high = blockPtr.length - 1, block = -1;
+		while (low <= high) {
+			int mid = (low + high) >>> 1;
+			cursor.seekBlock(mid);
+			cursor.next();
+			int cmp = compare(cursor.term, cursor.termLen, key);
+			if (cmp == 0)
+				return cursor.termIndex;
+			if (cmp < 0) {
+				block = mid;
+				low = mid + 1;
+			} else {
+				high = mid - 1;
+			}
+		}
+		if (block < 0) {
+			cursor.seekBlock(0);
+			cursor.next();
+			return 0;
+		}
+		//the head is smaller, so the scan starts at the second term of the block
+		cursor.seekBlock(block);
+		cursor.next();
+		int count = blockTermCount(block);
+		for (int i = 1; i < count; i++) {
+			cursor.next();
+			if (compare(cursor.term, cursor.termLen, key) >= 0)
+				return cursor.termIndex;
+		}
+		return block * blockSize + count;
+	}
+
+	//term at the termIndex
+	public String getTerm(int termIndex) {
+		Cursor cursor = new Cursor();
+		cursor.seek(termIndex);
+		return cursor.toString();
+	}
+
+	//decodes the terms of one block
+	public String[] readBlock(int block) {
+		String[] terms = new String[blockTermCount(block)];
+		Cursor cursor = new Cursor();
+		cursor.seekBlock(block);
+		for (int i = 0; i < terms.length; i++) {
+			cursor.next();
+			terms[i] = cursor.toString();
+		}
+		return terms;
+	}
+
+	//streams all terms in order without going back to the block pointers, for merges
+	@Override
+	public Iterator<String> iterator() {
+		return iterator(0);
+	}
+
+	//streams the terms from the termIndex on, ceiling(prefix) gives the start of a prefix scan
+	public Iterator<String> iterator(int termIndex) {
+		Cursor own = new Cursor();
+		if (termIndex >= termCount)
+			own.termIndex = termCount - 1;
+		else if (termIndex > 0)
+			own.seek(termIndex - 1);
+		else
+			own.seekBlock(0);
+		return new Iterator<String>() {
+			@Override
+			public boolean hasNext() {
+				return own.termIndex + 1 < termCount;
+			}
+
+			@Override
+			public String next() {
+				if (!hasNext())
+					throw new NoSuchElementException();
+				own.next();
+				return own.toString();
+			}
+		};
+	}
+
+	private int blockTermCount(int block) {
+		return Math.min(blockSize, termCount - block * blockSize);
+	}
+
+	//read position in the dictionary with the last decoded term
+	private class Cursor {
+		int pos;
+		int termIndex = -1;
+		byte[] term = new byte[64];
+		int termLen;
+
+		void seekBlock(int block) {
+			pos = start + blockPtr[block];
+			termIndex = block * blockSize - 1;
+		}
+
+		void seek(int termIndex) {
+			seekBlock(termIndex / blockSize);
+			while (this.termIndex < termIndex)
+				next();
+		}
+
+		//decodes the next term, a front coded term keeps the prefix it shares with the term left in the buffer
+		void next() {
+			termIndex++;
+			int shared = frontCoded && termIndex % blockSize != 0 ? readVByte() : 0;
+			int len = shared + readVByte();
+			if (len > term.length)
+				term = Arrays.copyOf(term, Math.max(len, term.length * 2));
+			for (int i = shared; i < len; i++)
+				term[i] = bytes.get(pos++);
+			termLen = len;
+		}
+
+		//variable byte code, 7 bits per byte with the high bit set on the last byte
+		private int readVByte() {
+			int n = 0;
+			while (true) {
+				int b = bytes.get(pos++) & 0xFF;
+				if (b >= 128)
+					return (n << 7) | (b - 128);
+				n = (n << 7) | b;
+			}
+		}
+
+		@Override
+		public String toString() {
+			return new String(term, 0, termLen, StandardCharsets.UTF_8);
+		}
+	}
+
+	//order the terms are sorted in before a dictionary is built, the code point order that compare searches with,
+	//String.compareTo puts the terms with characters above U+FFFF before those with U+E000 to U+FFFF
+	public static final Comparator<String> TERM_ORDER = new Comparator<String>() {
+		@Override
+		public int compare(String o1, String o2) {
+			int i = 0, j = 0;
+			while (i < o1.length() && j < o2.length()) {
+				int c1 = o1.codePointAt(i), c2 = o2.codePointAt(j);
+				if (c1 != c2)
+					return Integer.compare(c1, c2);
+				i += Character.charCount(c1);
+				j += Character.charCount(c2);
+			}
+			return Boolean.compare(i < o1.length(), j < o2.length());
+		}
+	};
+
+	//unsigned byte order of UTF-8 is the code point order of the terms
+	private static int compare(byte[] a, int aLen, byte[] b) {
+		int n = Math.min(aLen, b.length);
+		for (int i = 0; i < n; i++) {
+			int cmp = (a[i] & 0xFF) - (b[i] & 0xFF);
+			if (cmp != 0)
+				return cmp;
+		}
+		return aLen - b.length;
+	}
+
+	//Bytes per term and lookup time of the dictionary of an index for several k
+	//Usage: TermDictionary [index file] [k ...]
+	public static void main(String[] args) throws IOException {
+		IndexReader reader = new IndexReader(args.length > 0 ? args[0] : "Index_Version1.compressed");
+		TermDictionary stored = reader.getDictionary();
+		List<String> terms = new ArrayList<>(stored.getTermCount());
+		for (String term : stored)
+			terms.add(term);
+		int[] ks = {1, 2, 4, 8, 16, 32, 64};
+		if (args.length > 1) {
+			ks = new int[args.length - 1];
+			for (int i = 1; i < args.length; i++)
+				ks[i - 1] = Integer.parseInt(args[i]);
+		}
+		//half of the lookups are misses, made by changing the last letter
+		List<String> queries = new ArrayList<>(2 * terms.size());
+		for (String term : terms) {
+			queries.add(term);
+			queries.add(term.substring(0, term.length() - 1) + '~');
+		}
+		Collections.shuffle(queries, new Random(42));
+		System.out.println("Terms :: " + terms.size());
+		System.out.println("k\tFront coded\tBytes/term\tLookup ns\tIterate ns/term");
+		for (boolean frontCoded : new boolean[] {false, true}) {
+			for (int k : ks) {
+				TermDictionary dictionary = build(terms, k, frontCoded);
+				double bytesPerTerm = (dictionary.byteLength() + 4.0 * dictionary.getBlockCount()) / terms.size();
+				long found = 0, best = Long.MAX_VALUE;
+				for (int round = 0; round < 20; round++) {
+					long t0 = System.nanoTime();
+					for (String query : queries)
+						found += dictionary.lookup(query) >= 0 ? 1 : 0;
+					best = Math.min(best, System.nanoTime() - t0);
+				}
+				long iterate = Long.MAX_VALUE;
+				for (int round = 0; round < 20; round++) {
+					long t0 = System.nanoTime();
+					for (String term : dictionary)
+						found += term.length() > 0 ? 0 : 1;
+					iterate = Math.min(iterate, System.nanoTime() - t0);
+				}
+				if (found != 20L * terms.size())
+					throw new IllegalStateException("k " + k + " found " + found / 20 + " of " + terms.size() + " terms");
+				System.out.println(k + "\t" + frontCoded + "\t\t" + String.format("%.2f", bytesPerTerm) + "\t\t" + best / queries.size() + "\t\t" + iterate / terms.size());
+			}
+		}
+	}
+
+	//growable byte array the dictionary is built in
+	private static class ByteOutput {
+		byte[] bytes = new byte[1024];
+		int size;
+
+		void write(byte[] b, int offset, int len) {
+			ensureCapacity(len);
+			System.arraycopy(b, offset, bytes, size, len);
+			size += len;
+		}
+
+		void writeVByte(int n) {
+			ensureCapacity(5);
+			int shift = 28;
+			while (shift > 0 && (n >>> shift) == 0)
+				shift -= 7;
+			for (; shift > 0; shift -= 7)
+				bytes[size++] = (byte) ((n >>> shift) & 0x7F);
+			bytes[size++] = (byte) (0x80 | (n & 0x7F));
+		}
+
+		private void ensureCapacity(int len) {
+			if (size + len > bytes.length)
+				bytes = Arrays.copyOf(bytes, Math.max(size + len, bytes.length * 2));
+		}
+	}
+}
@@ -0,0 +1,219 @@
+//===========================================================================================================================
+//	Program : Class that tokenizes a document with a character scanner instead of regular expressions
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetDecoder;
+import java.nio.charset.CodingErrorAction;
+import java.util.*;
+
+public class TokenScanner {
+	private Collection<String> stopWords;
+	//open addressing table of the stop words, so a candidate is checked without making a String
+	private String[] stopTable;
+	private char[] term = new char[64];
+	private ByteBuffer bytes = ByteBuffer.allocate(1 << 16);
+	private CharBuffer chars = CharBuffer.allocate(1 << 16);
+	private CharsetDecoder decoder = Charset.defaultCharset().newDecoder()
+			.onMalformedInput(CodingErrorAction.REPLACE).onUnmappableCharacter(CodingErrorAction.REPLACE);
+
+	public TokenScanner(Collection<String> stopWords) {
+		this.stopWords = stopWords;
+		int size = Integer.highestOneBit(Math.max(4, stopWords.size() * 4));
+		stopTable = new String[size];
+		for (String word : stopWords) {
+			int slot = word.hashCode() & (size - 1);
+			while (stopTable[slot] != null && !stopTable[slot].equals(word))
+				slot = (slot + 1) & (size - 1);
+			stopTable[slot] = word;
+		}
+	}
+
+	//reads the file into the reusable buffers and tokenizes it, returns the docLen
+	public int tokenize(File inputFile, List<String> tokens) throws IOException {
+		try (FileInputStream in = new FileInputStream(inputFile)) {
+			FileChannel channel = in.getChannel();
+			long size = channel.size();
+			if (size > bytes.capacity())
+				bytes = ByteBuffer.allocate((int) size);
+			bytes.clear();
+			while (bytes.position() < size && channel.read(bytes) >= 0)
+				;
+		}
+		bytes.flip();
+		return tokenize(bytes, tokens);
+	}
+
+	//decodes the bytes of a document read elsewhere with the default charset and tokenizes them, returns the docLen
+	public int tokenize(ByteBuffer input, List<String> tokens) {
+		int maxChars = (int) Math.ceil(input.remaining() * (double) decoder.maxCharsPerByte());
+		if (maxChars > chars.capacity())
+			chars = CharBuffer.allocate(maxChars);
+		chars.clear();
+		decoder.reset();
+		decoder.decode(input, chars, true);
+		decoder.flush(chars);
+		chars.flip();
+		return tokenize(chars, tokens);
+	}
+
+	//lines end like Scanner.nextLine, fields are split like String.split("[\\s/(,='-]"), returns the docLen
+	public int tokenize(CharSequence text, List<String> tokens) {
+		int docLen = 0, pos = 0, end = text.length();
+		while (pos < end) {
+			int lineEnd = pos;
+			char ch = 0;
+			while (lineEnd < end && !isLineEnd(ch = text.charAt(lineEnd)))
+				lineEnd++;
+			if (lineEnd == pos) {
+				//an empty line still counts as one word, like "".split(...)
+				docLen++;
+			} else {
+				//trailing empty fields are not counted, like String.split
+				int field = 0, fieldCount = 0, fieldStart = pos;
+				for (int i = pos; i <= lineEnd; i++) {
+					if (i == lineEnd || isSeparator(text.charAt(i))) {
+						if (i > fieldStart) {
+							fieldCount = field + 1;
+							addToken(text, fieldStart, i, tokens);
+						}
+						field++;
+						fieldStart = i + 1;
+					}
+				}
+				docLen += fieldCount;
+			}
+			if (lineEnd < end && ch == '\r' && lineEnd + 1 < end && text.charAt(lineEnd + 1) == '\n')
+				lineEnd++;
+			pos = lineEnd + 1;
+		}
+		return docLen;
+	}
+
+	private static boolean isLineEnd(char ch) {
+		return ch == '\n' || ch == '\r' || ch == '\u2028' || ch == '\u2029' || ch == '\u0085';
+	}
+
+	private static boolean isSeparator(char ch) {
+		switch (ch) {
+		case ' ': case '\t': case '\n': case '\u000B': case '\f': case '\r':
+		case '/': case '(': case ',': case '=': case '\'': case '-':
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	private static boolean isAlphaNumeric(char ch) {
+		return (ch >= 'a' && ch <= 'z') || (ch >= 'A' && ch <= 'Z') || (ch >= '0' && ch <= '9');
+	}
+
+	//same normalisation as Tokenize.normalize, done in the term buffer, a String is made only for a kept token
+	private void addToken(CharSequence text, int start, int end, List<String> tokens) {
+		int len = end - start;
+		if (len > term.length)
+			term = new char[Math.max(len, term.length * 2)];
+		for (int i = 0; i < len; i++) {
+			char ch = text.charAt(start + i);
+			if (ch > 0x7F) {
+				//case folding outside ASCII depends on the locale, so it is left to the String code
+				String token = Tokenize.normalize(text.subSequence(start, end).toString(), stopWords);
+				if (token != null)
+					tokens.add(token);
+				return;
+			}
+			// case folding
+			term[i] = ch >= 'A' && ch <= 'Z' ? (char) (ch + ('a' - 'A')) : ch;
+		}
+		int s = 0, e = len;
+		while (s < e && term[s] <= ' ')
+			s++;
+		while (e > s && term[e - 1] <= ' ')
+			e--;
+		// Eliminate one length terms, terms with digits and SGML tags
+		if (e - s <= 1 || term[e - 1] == '>')
+			return;
+		for (int i = s; i < e; i++) {
+			if (term[i] >= '0' && term[i] <= '9')
+				return;
+		}
+		// trim trailing and leading special characters like comma, dot
+		while (e > s && !isAlphaNumeric(term[e - 1]))
+			e--;
+		while (s < e && !isAlphaNumeric(term[s]))
+			s++;
+		// possessions
+		if (e - s >= 2 && term[e - 2] == '\'' && term[e - 1] == 's')
+			e -= 2;
+		// i.e is appended to some words by typo, remove that
+		if (e - s > 3 && term[e - 3] == 'i' && term[e - 2] == '.' && term[e - 1] == 'e')
+			e -= 3;
+		// abbreviations to tokens
+		int out = s;
+		for (int i = s; i < e; i++) {
+			if (term[i] != '.')
+				term[out++] = term[i];
+		}
+		e = out;
+		if (e - s > 1 && !isStopWord(s, e - s))
+			tokens.add(new String(term, s, e - s));
+	}
+
+	private boolean isStopWord(int offset, int len) {
+		int hash = 0;
+		for (int i = 0; i < len; i++)
+			hash = 31 * hash + term[offset + i];
+		int mask = stopTable.length - 1;
+		for (int slot = hash & mask; stopTable[slot] != null; slot = (slot + 1) & mask) {
+			String word = stopTable[slot];
+			if (word.length() == len) {
+				int i = 0;
+				while (i < len && word.charAt(i) == term[offset + i])
+					i++;
+				if (i == len)
+					return true;
+			}
+		}
+		return false;
+	}
+
+	//Golden output check against the regular expression tokenizer over the collection, with tokens per second for both
+	//Usage: TokenScanner [folder]
+	public static void main(String[] args) throws IOException {
+		File folder = new File(args.length > 0 ? args[0] : "Cranfield/");
+		File[] files = folder.listFiles();
+		Arrays.sort(files);
+		List<String> stopWords = Tokenize.loadStopWords();
+		TokenScanner scanner = new TokenScanner(stopWords);
+		List<String> expected = new ArrayList<>(), actual = new ArrayList<>();
+		long regexNanos = 0, scannerNanos = 0, tokenCount = 0;
+		int mismatches = 0;
+		for (File inputFile : files) {
+			expected.clear();
+			actual.clear();
+			long t0 = System.nanoTime();
+			int expectedLen = Tokenize.createTokensRegex(inputFile, expected);
+			long t1 = System.nanoTime();
+			int actualLen = scanner.tokenize(inputFile, actual);
+			long t2 = System.nanoTime();
+			regexNanos += t1 - t0;
+			scannerNanos += t2 - t1;
+			tokenCount += expected.size();
+			if (expectedLen != actualLen || !expected.equals(actual)) {
+				mismatches++;
+				System.out.println("Mismatch in " + inputFile.getName() + " :: docLen " + expectedLen + "/" + actualLen);
+			}
+		}
+		System.out.println("Documents :: " + files.length + ", tokens :: " + tokenCount + ", mismatches :: " + mismatches);
+		System.out.println("Regex tokenizer :: " + (long) (tokenCount / (regexNanos / 1e9)) + " tokens/sec");
+		System.out.println("Scanner tokenizer :: " + (long) (tokenCount / (scannerNanos / 1e9)) + " tokens/sec");
+	}
+}
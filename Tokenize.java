@@ -5,112 +5,180 @@
 // 	Date created: 2016/10/26
 //===========================================================================================================================
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.IOException;
-import java.io.UnsupportedEncodingException;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
 import java.util.Scanner;
 import java.util.*;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 
 public class Tokenize {
+	//memory for the posting buffers of each inverter before a run is written to disk
+	private static long memoryBudget = 64L * 1024 * 1024;
+	//threads that lemmatize and stem, next to the reader, tokenizer and inverter threads
+	private static int threads = 1;
+	//BSBI inversion to disk for collections whose postings do not fit in the heap
+	private static boolean external = false;
+	//lemma and stem versions normalized, inverted and written on their own threads from one pass of tokenizing
+	private static boolean concurrent = false;
+	//positions of the tokens in the compressed indexes, for phrase and proximity queries
+	private static boolean positions = false;
+	//JSON summary of the stage times, allocations and counts, written when a file is given
+	private static File metricsFile;
 	private static ArrayList<String> stopWords;
-	private static ArrayList<String> tokenisedWords;
 	
+	//codecs are gamma, delta, vbyte, simple8b, pfordelta and eliasfano
+	private static final String USAGE = "Usage: Tokenize [-budget <MB>] [-threads <n>] [-k <terms per dictionary block>] [-codec1 <name>] [-codec2 <name>] [-external] [-concurrent] [-gather] [-positions] [-metrics <json file>]";
+
+	//an unknown option or one without its value stops the build, so a typo does not run it with the defaults
 	public static void main(String[] args) throws IOException {
-		int docId = 0;
-		//Removal of stop words
-		Scanner stopWordFile = new Scanner(new File("stopwords"));
-		stopWords = new ArrayList<>();
-		tokenisedWords = new ArrayList<>();
-		
-		while (stopWordFile.hasNext()) {
-			stopWords.add(stopWordFile.next());
+		for (int i = 0; i < args.length; i++) {
+			if (args[i].equals("-external"))
+				external = true;
+			else if (args[i].equals("-concurrent"))
+				concurrent = true;
+			else if (args[i].equals("-gather"))
+				IndexWriter.gatheringWrites = true;
+			else if (args[i].equals("-positions"))
+				positions = true;
+			else if (args[i].equals("-budget"))
+				memoryBudget = Long.parseLong(value(args, i++)) * 1024 * 1024;
+			else if (args[i].equals("-threads"))
+				threads = Integer.parseInt(value(args, i++));
+			else if (args[i].equals("-k"))
+				Compression.blockSize = Integer.parseInt(value(args, i++));
+			else if (args[i].equals("-codec1"))
+				Lemmatize.postingCodec = PostingCodec.forName(value(args, i++));
+			else if (args[i].equals("-codec2"))
+				Stemmer.postingCodec = PostingCodec.forName(value(args, i++));
+			else if (args[i].equals("-metrics"))
+				metricsFile = new File(value(args, i++));
+			else
+				throw new IllegalArgumentException("unknown option " + args[i] + "\n" + USAGE);
 		}
-		String[] idAndNames = null;
+		//BSBI runs hold no positions
+		if (external && positions)
+			throw new IllegalArgumentException("-positions cannot be used with -external");
+		//Removal of stop words
+		stopWords = loadStopWords();
 		//Reading from cranfield collection
-		File folder = new File("Cranfield/");
-		
-		File[] files = null;
-		if (folder.exists() && folder.isDirectory()) {
-			files = folder.listFiles();
+		List<File> files = collectionFiles(new File("Cranfield/"));
+		//one lemmatizer pipeline per normalizer thread
+		Lemmatize.startIndex(memoryBudget, threads, external, positions);
+		Stemmer.startIndex(memoryBudget, external, positions);
+		//documents stream through the stages and go into both inverters in docId order, then the lemmatizer
+		//and stemmer indexes are written, one after the other or at the same time
+		new BuildPipeline(files, stopWords, threads, concurrent).run();
+		//statistics asked in the result
+		Lemmatize.printStatistics();
+		Stemmer.printStatistics();
+		if (metricsFile != null) {
+			Metrics.writeJson(metricsFile);
+			System.out.println("\nMetrics written to :: " + metricsFile);
 		}
-		for (File inputFile : files) {
-			if (inputFile.isFile()) {
-				idAndNames = inputFile.getName().split("(?=\\d)(?<!\\d)");
-				docId = Integer.parseInt(idAndNames[1]);
-				createTokens(inputFile, docId);
+	}
+
+	//the argument after an option that takes a value
+	private static String value(String[] args, int i) {
+		if (i + 1 == args.length)
+			throw new IllegalArgumentException(args[i] + " needs a value\n" + USAGE);
+		return args[i + 1];
+	}
+
+	//files of a collection folder, docIds are zero padded in the file names, so name order is docId order for the posting lists
+	public static List<File> collectionFiles(File folder) {
+		List<File> files = new ArrayList<>();
+		if (folder.exists() && folder.isDirectory()) {
+			for (File inputFile : folder.listFiles()) {
+				if (inputFile.isFile())
+					files.add(inputFile);
 			}
 		}
+		Collections.sort(files);
+		return files;
+	}
+
+	//docId in the name of a collection file
+	public static int docId(File inputFile) {
+		return Integer.parseInt(inputFile.getName().split("(?=\\d)(?<!\\d)")[1]);
+	}
+
+	public static ArrayList<String> loadStopWords() throws IOException {
+		Scanner stopWordFile = new Scanner(new File("stopwords"));
+		ArrayList<String> words = new ArrayList<>();
+		while (stopWordFile.hasNext()) {
+			words.add(stopWordFile.next());
+		}
 		stopWordFile.close();
-		//calling lemmatizer 
-		Lemmatize.lemmatizer(tokenisedWords);
-		//calling stemmer
-		Stemmer.stemmerCollection(tokenisedWords);
-		//statistics asked in the result
-		Lemmatize.printStatistics();
-		Stemmer.printStatistics();
+		return words;
 	}
 
-	//Create tokens after removing unwanted characters
-	private static void createTokens(File inputFile, int docId) throws FileNotFoundException, UnsupportedEncodingException {//, PrintWriter writer
+	//Create tokens after removing unwanted characters, returns the docLen
+	//Regular expression version that TokenScanner replaces, kept to check the scanner against it
+	public static int createTokensRegex(File inputFile, List<String> documentTokens) throws IOException {
+		if (stopWords == null)
+			stopWords = loadStopWords();
+		//the file is read once, the lines are used for docLen and then for the tokens
+		String[] lines = readLines(inputFile);
 		String[] sentence;
-		Scanner srcFile1 = new Scanner(inputFile);
 		int docLen = 0;
-		while (srcFile1.hasNextLine()) {
-			sentence = srcFile1.nextLine().split("[\\s/(,='-]");
+		for (String line : lines) {
+			sentence = line.split("[\\s/(,='-]");
 			docLen += sentence.length;
 		}
-		srcFile1.close();
 		
-		Scanner srcFile = new Scanner(inputFile);
-		while (srcFile.hasNextLine()) {
+		for (String line : lines) {
 			// splitting the tokens
-			sentence = srcFile.nextLine().split("[\\s/(,='-]");
+			sentence = line.split("[\\s/(,='-]");
 			
 			for (String term : sentence) {
-				// case folding
-				term = term.toLowerCase().trim();
-
-				// Remove hyphens, possessions, trim trailing and leading
-				// special characters like comma, dot 
-				// Eliminate one length terms and spaces
-				if (!term.isEmpty() && !Pattern.matches("<*\\D+>", term) && term.length() > 1
-						&& !Pattern.matches(".*[0-9].*", term)) {
-					term = term.replaceAll("[^a-zA-Z0-9]*$", "").replaceAll("^[^a-zA-Z0-9]*", "").replaceAll("\'s$", "");
-
-					// i.e is appended to some words by typo, remove that
-					Pattern ptrn = Pattern.compile("^\\D+(i\\.e)$");
-					Matcher matcher = ptrn.matcher(term);
-					if (matcher.matches()) {
-						term = term.replaceAll("(i\\.e)$", "");
-					}
-					// abbreviations to tokens
-					term = term.replaceAll("\\.", "");
-					// Storing the terms and counts
-					if (term.length() > 1 && !stopWords.contains(term)) {
-						tokenisedWords.add(term + " " + docId + " " + docLen);
-					}
+				term = normalize(term, stopWords);
+				// Storing the terms and counts
+				if (term != null) {
+					documentTokens.add(term);
 				}
 			}
 		}
-		srcFile.close();
+		return docLen;
 	}
-	//sort by value for the max tf
-	public static <K, V extends Comparable<? super V>> Map<K, V> 
-			sortByValue(Map<K, V> map) {
-		List<Map.Entry<K, V>> list = new LinkedList<>(map.entrySet());
-		Collections.sort(list, new Comparator<Map.Entry<K, V>>() {
-			@Override
-			public int compare(Map.Entry<K, V> o1, Map.Entry<K, V> o2) {
-				return (o2.getValue()).compareTo(o1.getValue());
-			}
-		});
 
-		Map<K, V> result = new LinkedHashMap<>();
-		for (Map.Entry<K, V> entry : list) {
-			result.put(entry.getKey(), entry.getValue());
+	//normalised token of a split word, null if the word is dropped
+	public static String normalize(String term, Collection<String> stopWords) {
+		// case folding
+		term = term.toLowerCase().trim();
+
+		// Remove hyphens, possessions, trim trailing and leading
+		// special characters like comma, dot 
+		// Eliminate one length terms and spaces
+		if (!term.isEmpty() && !Pattern.matches("<*\\D+>", term) && term.length() > 1
+				&& !Pattern.matches(".*[0-9].*", term)) {
+			term = term.replaceAll("[^a-zA-Z0-9]*$", "").replaceAll("^[^a-zA-Z0-9]*", "").replaceAll("\'s$", "");
+
+			// i.e is appended to some words by typo, remove that
+			Pattern ptrn = Pattern.compile("^\\D+(i\\.e)$");
+			Matcher matcher = ptrn.matcher(term);
+			if (matcher.matches()) {
+				term = term.replaceAll("(i\\.e)$", "");
+			}
+			// abbreviations to tokens
+			term = term.replaceAll("\\.", "");
+			if (term.length() > 1 && !stopWords.contains(term)) {
+				return term;
+			}
 		}
-		return result;
+		return null;
+	}
+
+	//lines of a file split the same way as Scanner.nextLine
+	private static String[] readLines(File inputFile) throws IOException {
+		String text = new String(Files.readAllBytes(inputFile.toPath()), Charset.defaultCharset());
+		if (text.isEmpty())
+			return new String[0];
+		String[] lines = text.split("\\r\\n|[\\n\\r\\u2028\\u2029\\u0085]", -1);
+		//a line separator at the end does not start another line
+		if (lines[lines.length - 1].isEmpty())
+			lines = Arrays.copyOf(lines, lines.length - 1);
+		return lines;
 	}
 }
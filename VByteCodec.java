@@ -0,0 +1,61 @@
+//===========================================================================================================================
+//	Program : Posting codec that writes each value in variable bytes, 7 bits per byte
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+public class VByteCodec implements PostingCodec {
+	@Override
+	public int getId() {
+		return VBYTE;
+	}
+
+	@Override
+	public String getName() {
+		return "vbyte";
+	}
+
+	@Override
+	public int getBlockSize() {
+		return 0;
+	}
+
+	@Override
+	public boolean isByteAligned() {
+		return true;
+	}
+
+	@Override
+	public void encode(int[] values, int count, BitOutputStream out) {
+		out.alignToByte();
+		for (int i = 0; i < count; i++)
+			writeVByte(values[i], out);
+	}
+
+	@Override
+	public void decode(BitInputStream in, int[] values, int count) {
+		in.alignToByte();
+		for (int i = 0; i < count; i++)
+			values[i] = readVByte(in);
+	}
+
+	//high 7 bit groups first, the high bit is set on the last byte like the dictionary lengths
+	public static void writeVByte(int n, BitOutputStream out) {
+		int shift = 28;
+		while (shift > 0 && (n >>> shift) == 0)
+			shift -= 7;
+		for (; shift > 0; shift -= 7)
+			out.writeByte((n >>> shift) & 0x7F);
+		out.writeByte(0x80 | (n & 0x7F));
+	}
+
+	public static int readVByte(BitInputStream in) {
+		int n = 0;
+		while (true) {
+			int b = in.readByte();
+			if (b >= 128)
+				return (n << 7) | (b - 128);
+			n = (n << 7) | b;
+		}
+	}
+}
@@ -0,0 +1,66 @@
+//===========================================================================================================================
+//	Program : Class with the Vector API kernels of BitPacking, loaded only when jdk.incubator.vector is available
+//===========================================================================================================================
+//	@author: Karthika Karunakaran
+// 	Date created: 2026/10/18
+//===========================================================================================================================
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+//Build : javac --add-modules jdk.incubator.vector VectorBitPacking.java
+public class VectorBitPacking extends BitPacking {
+	//one row of the block layout, 128 bit vectors are there on every x86-64 CPU
+	private static final VectorSpecies<Integer> SPECIES = IntVector.SPECIES_128;
+	private static final ThreadLocal<int[]> windowGaps = ThreadLocal.withInitial(() -> new int[BLOCK_SIZE + LANES]);
+
+	public VectorBitPacking() {
+		if (SPECIES.length() != LANES)
+			throw new IllegalStateException("lanes " + SPECIES.length());
+	}
+
+	@Override
+	public void unpackBlock(int[] words, int width, int[] values, int start) {
+		int mask = width == 32 ? -1 : (1 << width) - 1;
+		for (int row = 0; row < BLOCK_SIZE / LANES; row++) {
+			int bit = row * width, k = (bit >>> 5) * LANES, shift = bit & 31;
+			IntVector value = IntVector.fromArray(SPECIES, words, k).lanewise(VectorOperators.LSHR, shift);
+			if (shift + width > 32)
+				value = value.or(IntVector.fromArray(SPECIES, words, k + LANES).lanewise(VectorOperators.LSHL, 32 - shift));
+			value.and(mask).intoArray(values, start + row * LANES);
+		}
+	}
+
+	//The sum of the 4 gaps up to each number plus the sum 4 numbers back is its running sum,
+	//so the vectors only add lanewise, a scan inside the vector is slower than the scalar loop on JDK 17
+	@Override
+	public void runningSum(int[] values, int start, int n, int base) {
+		if (!VECTOR_PREFIX_SUM) {
+			super.runningSum(values, start, n, base);
+			return;
+		}
+		//the gaps after LANES - 1 zeros, the windows read back from them while the sums overwrite values
+		int[] gaps = windowGaps.get();
+		if (gaps.length < n + LANES) {
+			gaps = new int[n + LANES];
+			windowGaps.set(gaps);
+		}
+		System.arraycopy(values, start, gaps, LANES - 1, n);
+		IntVector sum = IntVector.broadcast(SPECIES, base);
+		int i = 0;
+		for (; i + LANES <= n; i += LANES) {
+			IntVector window = IntVector.fromArray(SPECIES, gaps, i + 3).add(IntVector.fromArray(SPECIES, gaps, i + 2))
+					.add(IntVector.fromArray(SPECIES, gaps, i + 1).add(IntVector.fromArray(SPECIES, gaps, i)));
+			sum = sum.add(window);
+			sum.intoArray(values, start + i);
+		}
+		int last = i == 0 ? base : values[start + i - 1];
+		for (; i < n; i++)
+			values[start + i] = last += values[start + i];
+	}
+
+	@Override
+	public String getName() {
+		return "vector " + SPECIES + (VECTOR_PREFIX_SUM ? " with vector prefix sum" : "");
+	}
+}
@@ -1,4 +1,6 @@
 #!/bin/sh
 source /usr/local/corenlp341/classpath.sh
 javac -Xlint Tokenize.java
-java Tokenize
+#optional Vector API kernels for the posting blocks, the scalar ones are used without them
+javac --add-modules jdk.incubator.vector VectorBitPacking.java
+java --add-modules jdk.incubator.vector Tokenize
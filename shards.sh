@@ -0,0 +1,18 @@
+#!/bin/sh
+#builds the collection as docId range shards, serves each from its own JVM and queries them all
+#Usage: shards.sh [shards] [first port]
+source /usr/local/corenlp341/classpath.sh
+SHARDS=${1:-4}
+PORT=${2:-7100}
+javac -Xlint ShardedIndex.java ShardServer.java
+java ShardedIndex -build $SHARDS shards
+ADDRESSES=""
+i=0
+while [ $i -lt $SHARDS ]; do
+	java ShardServer shards/shard_$i $((PORT + i)) &
+	ADDRESSES="$ADDRESSES${ADDRESSES:+,}localhost:$((PORT + i))"
+	i=$((i + 1))
+done
+sleep 2
+java ShardedIndex $ADDRESSES -rank "flow pressur boundari" -bm25 -rank "flow pressur boundari" -query "shock AND NOT flow"
+kill $(jobs -p)